@@ -0,0 +1,105 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveGenerator;
+import chess.MoveList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmarks for the public ChessGame/ChessBoard calls the server makes per move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    // Knights out and back for both sides: four legal moves that return to the start position
+    private static final ChessMove[] KNIGHT_SHUFFLE = {
+            new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null),
+            new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null),
+            new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null),
+            new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null),
+    };
+
+    @Param({"START", "KIWIPETE", "MIDGAME"})
+    public Position position;
+
+    private ChessGame game;
+    private ChessGame shuffleGame;
+    private ChessGame foolsMate;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moveList = new MoveList();
+
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidMoveException {
+        game = position.game();
+        foolsMate = new ChessGame();
+        foolsMate.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        foolsMate.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        foolsMate.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        foolsMate.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+    }
+
+    // The shuffle repeats the start position, so a game reused across calls is drawn by the third
+    @Setup(Level.Invocation)
+    public void resetShuffle() {
+        shuffleGame = new ChessGame();
+    }
+
+    /** validMoves for every square of the side to move, as a client highlighting moves would call it. */
+    @Benchmark
+    public void validMovesAllPieces(Blackhole blackhole) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = ChessPosition.of(row, col);
+                var piece = game.getBoard().getPiece(square);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    blackhole.consume(game.validMoves(square));
+                }
+            }
+        }
+    }
+
+    /** Every legal move of the side to move as packed ints, into a reused list. */
+    @Benchmark
+    public int generatePackedMoves() {
+        moveList.clear();
+        generator.generate(game, moveList);
+        return moveList.size();
+    }
+
+    /** Four validated makeMove calls, including the legality check each one performs. */
+    @Benchmark
+    public ChessGame makeMoveKnightShuffle() throws InvalidMoveException {
+        for (ChessMove move : KNIGHT_SHUFFLE) {
+            shuffleGame.makeMove(move);
+        }
+        return shuffleGame;
+    }
+
+    /** Checkmate test as the server runs it after a move, where the side to move is usually not in check. */
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    /** Checkmate test on a mated position, where every escape has to be ruled out. */
+    @Benchmark
+    public boolean isInCheckmateMated() {
+        return foolsMate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public ChessBoard copyBoard() {
+        return new ChessBoard(game.getBoard());
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.PositionCodec;
+import com.google.gson.Gson;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import serialization.Serializer;
+
+/**
+ * Round trips a position through each serialized form: reflective Gson JSON, JSON through the
+ * shared adapters, FEN and the binary codec. Compare time per op here with the sizes printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final Gson REFLECTIVE = new Gson();
+
+    @Param({"START", "KIWIPETE"})
+    public Position position;
+
+    private ChessGame game;
+    private String json;
+    private String adapterJson;
+    private String fen;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = position.game();
+        json = REFLECTIVE.toJson(game);
+        adapterJson = Serializer.GSON.toJson(game);
+        fen = game.toFen();
+        encoded = PositionCodec.encode(game);
+        System.out.printf("%n%s: json %d chars, adapter json %d chars, fen %d chars, codec %d bytes%n",
+                position, json.length(), adapterJson.length(), fen.length(), encoded.length);
+    }
+
+    @Benchmark
+    public String gsonWrite() {
+        return REFLECTIVE.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gsonRead() {
+        return REFLECTIVE.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public String adapterWrite() {
+        return Serializer.GSON.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame adapterRead() {
+        return Serializer.GSON.fromJson(adapterJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public String fenWrite() {
+        return game.toFen();
+    }
+
+    @Benchmark
+    public ChessGame fenRead() {
+        return ChessGame.fromFen(fen);
+    }
+
+    @Benchmark
+    public byte[] codecWrite() {
+        return PositionCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame codecRead() {
+        return PositionCodec.decode(encoded);
+    }
+}
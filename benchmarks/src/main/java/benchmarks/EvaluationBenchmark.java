@@ -0,0 +1,58 @@
+package benchmarks;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+import chess.engine.Evaluator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The incrementally kept evaluation against rescanning all 64 squares for the same sums.
+ * Search speed with the evaluation in place is in {@link SearchBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    @Param({"START", "KIWIPETE"})
+    public Position position;
+
+    private ChessGame game;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = position.game();
+    }
+
+    @Benchmark
+    public int incremental() {
+        return Evaluator.evaluate(game);
+    }
+
+    @Benchmark
+    public int fullScan() {
+        ChessBoard board = game.getBoard();
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+                midgame += PieceSquareTables.midgame(index, square);
+                endgame += PieceSquareTables.endgame(index, square);
+                phase += PieceSquareTables.phase(index);
+            }
+        }
+        phase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
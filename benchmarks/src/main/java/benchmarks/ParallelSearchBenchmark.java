@@ -0,0 +1,62 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.ParallelSearch;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to search every standard position to a fixed depth, by thread count. Speedup is the
+ * one-thread time divided by the time for n threads; it can only show on a machine with at
+ * least n free cores. The table is cleared before each op so every run starts cold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"6"})
+    public int depth;
+
+    private final TranspositionTable table = new TranspositionTable(64);
+    private final ParallelSearch search = new ParallelSearch(table);
+    private final ChessGame[] suite = new ChessGame[Position.values().length];
+    private long nodes;
+    private long ops;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (Position position : Position.values()) {
+            suite[position.ordinal()] = position.game();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public long searchSuite() {
+        long suiteNodes = 0;
+        for (ChessGame game : suite) {
+            suiteNodes += search.search(game, SearchLimits.depth(depth), threads).getNodes();
+        }
+        nodes += suiteNodes;
+        ops++;
+        return suiteNodes;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%n%d threads: %d nodes per suite%n", threads, nodes / Math.max(ops, 1));
+    }
+}
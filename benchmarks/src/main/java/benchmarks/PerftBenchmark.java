@@ -0,0 +1,50 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Perft;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Perft from the standard positions at depths 1 to 6. Each iteration's node count is checked
+ * against the published value, so a benchmark run also catches move generation regressions.
+ * <p>
+ * Depth 6 takes minutes per iteration on the larger positions; narrow the run with
+ * {@code -p depth=1,2,3,4} when comparing changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param
+    public Position position;
+
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public int depth;
+
+    private ChessGame game;
+    private long nodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = position.game();
+    }
+
+    @Benchmark
+    public long perft() {
+        nodes = Perft.perft(game, depth);
+        return nodes;
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        if (nodes != position.expectedNodes(depth)) {
+            throw new IllegalStateException(String.format("perft(%s, %d) = %d, expected %d",
+                    position, depth, nodes, position.expectedNodes(depth)));
+        }
+    }
+}
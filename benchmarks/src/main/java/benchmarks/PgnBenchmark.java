@@ -0,0 +1,69 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Imports and exports a 45-ply game as PGN. {@code replayValidated} plays the same moves
+ * through {@link ChessGame#makeMove}, the per-move validMoves path, for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgnBenchmark {
+
+    private static final String GAME = """
+            [Event "London"]
+            [White "Anderssen, A."]
+            [Black "Kieseritzky, L."]
+            [Result "1-0"]
+
+            1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ 4. Kf1 b5 5. Bxb5 Nf6 6. Nf3 Qh6 7. d3 Nh5
+            8. Nh4 Qg5 9. Nf5 c6 10. g4 Nf6 11. Rg1 cxb5 12. h4 Qg6 13. h5 Qg5 14. Qf3 Ng8
+            15. Bxf4 Qf6 16. Nc3 Bc5 17. Nd5 Qxb2 18. Bd6 Bxg1 19. e5 Qxa1+ 20. Ke2 Na6
+            21. Nxg7+ Kd8 22. Qf6+ Nxf6 23. Be7# 1-0
+            """;
+
+    private ChessGame game;
+    private List<ChessMove> moves;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        game = new PgnReader(new StringReader(GAME)).next().getGame();
+        moves = game.getMoveHistory();
+    }
+
+    @Benchmark
+    public PgnGame read() throws IOException {
+        return new PgnReader(new StringReader(GAME)).next();
+    }
+
+    @Benchmark
+    public String write() throws IOException {
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).write(game);
+        return out.toString();
+    }
+
+    @Benchmark
+    public ChessGame replayValidated() throws InvalidMoveException {
+        ChessGame replay = new ChessGame();
+        for (ChessMove move : moves) {
+            replay.makeMove(move);
+        }
+        return replay;
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import chess.ChessGame;
+
+/**
+ * Standard perft positions, as FEN, with their published leaf counts for depths 1 to 6.
+ */
+public enum Position {
+    START("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            20, 400, 8902, 197281, 4865609, 119060324),
+    KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            48, 2039, 97862, 4085603, 193690690, 8031647685L),
+    EN_PASSANT("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            14, 191, 2812, 43238, 674624, 11030083),
+    PROMOTION("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            6, 264, 9467, 422333, 15833292, 706045033),
+    MIDGAME("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            44, 1486, 62379, 2103487, 89941194, 3048196529L);
+
+    private final String fen;
+    private final long[] perft;
+
+    Position(String fen, long... perft) {
+        this.fen = fen;
+        this.perft = perft;
+    }
+
+    /** @return the published perft count at the given depth (1..6) */
+    public long expectedNodes(int depth) {
+        return perft[depth - 1];
+    }
+
+    /** @return the position as FEN */
+    public String fen() {
+        return fen;
+    }
+
+    /** @return a fresh game set up at this position */
+    public ChessGame game() {
+        return ChessGame.fromFen(fen);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Fixed-depth engine search from the standard positions. Time per op together with the node
+ * count printed at teardown gives nodes per second. The transposition table is cleared before
+ * each search so every one starts cold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"START", "KIWIPETE", "MIDGAME"})
+    public Position position;
+
+    @Param({"5"})
+    public int depth;
+
+    private final TranspositionTable table = new TranspositionTable(16);
+    private final Search search = new Search(table);
+    private ChessGame game;
+    private long nodes;
+    private long millis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = position.game();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        SearchResult result = search.search(game, SearchLimits.depth(depth));
+        nodes += result.getNodes();
+        millis += result.getMillis();
+        return result;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%n%s depth %d: %.0f knodes/s, table hits %d, misses %d, collisions %d%n",
+                position, depth, nodes / (double) Math.max(millis, 1),
+                table.getHits(), table.getMisses(), table.getCollisions());
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
+import chess.tablebase.Wdl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Deciding a king and pawn ending from the memory-mapped tables against searching it. The
+ * three-piece tables are built into a temporary directory first, which takes a few seconds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TablebaseBenchmark {
+
+    private Tablebase tablebase;
+    private ChessGame game;
+    private Search search;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("tablebase");
+        new TablebaseGenerator(directory).generate(3);
+        tablebase = new Tablebase(directory);
+        game = ChessGame.fromFen("8/8/8/3k4/8/8/4P3/4K3 w - - 0 1");
+        search = new Search(new TranspositionTable(16));
+    }
+
+    @Benchmark
+    public Wdl probe() {
+        return tablebase.probe(game);
+    }
+
+    @Benchmark
+    public int search() {
+        return search.search(game, SearchLimits.depth(8)).getScore();
+    }
+}
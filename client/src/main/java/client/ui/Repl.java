@@ -7,10 +7,11 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Scanner;
 import model.*;
+import serialization.Serializer;
 import websocket.messages.*;
 
 public class Repl {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Serializer.GSON;
     private ServerFacade serverFacade;
     private AuthData authData;
     private GameData gameData;
@@ -242,7 +243,7 @@ public class Repl {
         var position = scanner.nextLine();
         var row = Integer.parseInt(position.split(",")[0]);
         var col = Integer.parseInt(position.split(",")[1]);
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private void highlightLegalMoves() {
@@ -380,7 +381,7 @@ public class Repl {
             if (col == 1) {
                 builder.append(rowSymbol);
             }
-            var position = new ChessPosition(row, col);
+            var position = ChessPosition.of(row, col);
             var piece = chessGame.getBoard().getPiece(position);
             var symbol = "";
             if (highlightPositions.contains(position)) {
@@ -7,10 +7,11 @@ import java.net.*;
 import java.util.function.Consumer;
 import jakarta.websocket.*;
 import model.*;
+import serialization.Serializer;
 import websocket.commands.*;
 
 public class ServerFacade extends Endpoint {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Serializer.GSON;
     private final String serverUrl;
     private Session session;
     private final Consumer<String> onMessage;
@@ -0,0 +1,156 @@
+package dataaccess;
+
+import exception.ResponseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import model.AuthData;
+
+/**
+ * Remembers auth token lookups in front of another {@link AuthDataAccess}.
+ * <p>
+ * A token found in the store is remembered for the time to live, and a token not found for
+ * the shorter negative time to live, so repeated bad tokens do not each reach the store
+ * either. At most {@code maxEntries} tokens are kept, least recently used first out.
+ * Deleting a token or clearing the store through this class forgets it at once; a token
+ * deleted behind its back stays valid here for up to the time to live.
+ */
+public class CachingAuthDataAccess implements AuthDataAccess {
+    private final AuthDataAccess store;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+
+    // Tokens, least recently used first; a null auth means the token is not in the store. Guarded by itself.
+    private final Map<String, Entry> entries;
+    // Bumped by every change, so a lookup that raced with one does not remember what it read
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingAuthDataAccess(AuthDataAccess store) {
+        this(store, 10_000, TimeUnit.MINUTES.toMillis(5), TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public CachingAuthDataAccess(AuthDataAccess store, int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this(store, maxEntries, ttlMillis, negativeTtlMillis, System::nanoTime);
+    }
+
+    // For tests, with a clock in nanoseconds
+    CachingAuthDataAccess(AuthDataAccess store, int maxEntries, long ttlMillis, long negativeTtlMillis,
+                          LongSupplier clock) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CachingAuthDataAccess.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Clear all auths.
+    public void clear() throws ResponseException {
+        store.clear();
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+    }
+
+    // Create a new authorization, remembered as valid.
+    public AuthData createAuth(AuthData auth) throws ResponseException {
+        AuthData created = store.createAuth(auth);
+        synchronized (entries) {
+            generation++;
+            entries.put(created.getAuthToken(), new Entry(created, clock.getAsLong() + ttlNanos));
+        }
+        return created;
+    }
+
+    // Retrieve an authorization given an authToken, from memory while it is fresh.
+    public AuthData getAuth(String authToken) throws ResponseException {
+        long seen;
+        synchronized (entries) {
+            Entry entry = entries.get(authToken);
+            if (entry != null && clock.getAsLong() - entry.expiresAt < 0) {
+                (entry.auth == null ? negativeHits : hits).incrementAndGet();
+                return entry.auth;
+            }
+            seen = generation;
+        }
+        misses.incrementAndGet();
+        AuthData auth = store.getAuth(authToken);
+        synchronized (entries) {
+            if (generation == seen) {
+                entries.put(authToken, new Entry(auth, clock.getAsLong() + (auth == null ? negativeTtlNanos : ttlNanos)));
+            }
+        }
+        return auth;
+    }
+
+    // Delete an authorization so that it is no longer valid, here and in the store.
+    public void deleteAuth(String authToken) throws ResponseException {
+        store.deleteAuth(authToken);
+        synchronized (entries) {
+            entries.remove(authToken);
+            generation++;
+        }
+    }
+
+    /** @return lookups answered from memory, valid or not */
+    public long getHitCount() {
+        return hits.get() + negativeHits.get();
+    }
+
+    /** @return lookups answered from memory with a token known not to exist */
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    /** @return lookups that went to the store */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return tokens forgotten to stay within the size bound */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** @return the share of lookups answered from memory, 0 before the first */
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CachingAuthDataAccess[size=%d, hits=%d, negativeHits=%d, misses=%d, evictions=%d, "
+                + "hitRate=%.3f]", size(), getHitCount(), getNegativeHitCount(), getMissCount(), getEvictionCount(),
+                getHitRate());
+    }
+
+    private record Entry(AuthData auth, long expiresAt) {
+    }
+}
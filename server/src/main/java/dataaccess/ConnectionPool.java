@@ -0,0 +1,431 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * {@link #getConnection()} hands out a connection whose {@code close()} puts it back in the
+ * pool instead of closing it, so callers keep using try-with-resources as before. At most
+ * {@code maxSize} connections exist at once; a caller that finds them all in use waits up to
+ * the acquire timeout and then fails. A connection that sat idle longer than the validation
+ * interval runs the validation query before it is handed out, and is replaced if that fails.
+ * A background thread closes connections idle longer than the idle timeout, down to
+ * {@code minSize}, opens new ones up to {@code minSize}, and reports every connection borrowed
+ * for longer than the leak threshold along with where it was borrowed.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Sizes and timeouts for a pool. Times are in milliseconds; a leak threshold of 0 turns
+     * leak detection off. Leak detection records a stack trace on every borrow, so it is
+     * meant for tracking a leak down rather than for everyday use.
+     */
+    public static class Settings {
+        private final int minSize;
+        private final int maxSize;
+        private final long acquireTimeoutMillis;
+        private final long idleTimeoutMillis;
+        private final long validationIntervalMillis;
+        private final long leakThresholdMillis;
+        private final String validationQuery;
+
+        public Settings(int minSize, int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis,
+                        long validationIntervalMillis, long leakThresholdMillis, String validationQuery) {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("invalid pool size: " + minSize + " to " + maxSize);
+            }
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.validationIntervalMillis = validationIntervalMillis;
+            this.leakThresholdMillis = leakThresholdMillis;
+            this.validationQuery = validationQuery;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getAcquireTimeoutMillis() {
+            return acquireTimeoutMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public long getValidationIntervalMillis() {
+            return validationIntervalMillis;
+        }
+
+        public long getLeakThresholdMillis() {
+            return leakThresholdMillis;
+        }
+
+        public String getValidationQuery() {
+            return validationQuery;
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    // One permit per connection that may be borrowed; waiting on it is what bounds the pool
+    private final Semaphore permits;
+    // Most recently returned first, so the busiest connections stay warm and the rest age out
+    private final Deque<Entry> idle = new ArrayDeque<>();
+    private final Set<Entry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int total;
+    private boolean closed;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(100, Math.min(settings.getIdleTimeoutMillis(),
+                settings.getLeakThresholdMillis() > 0 ? settings.getLeakThresholdMillis() : Long.MAX_VALUE) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if the pool is at its maximum size.
+     * Close the connection to give it back.
+     *
+     * @throws DataAccessException if none is free within the acquire timeout, or a new
+     *                             connection cannot be opened
+     */
+    public Connection getConnection() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new DataAccessException("Timed out after " + settings.getAcquireTimeoutMillis()
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        }
+        try {
+            Entry entry = takeIdle();
+            if (entry == null) {
+                entry = open();
+            }
+            long waited = System.nanoTime() - start;
+            acquired.incrementAndGet();
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrower = settings.getLeakThresholdMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+            entry.leakReported = false;
+            borrowed.add(entry);
+            return entry.lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Connections still borrowed
+     * are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+        synchronized (this) {
+            closed = true;
+            for (Entry entry : idle) {
+                discard(entry);
+            }
+            idle.clear();
+        }
+    }
+
+    /** @return the connections open, borrowed or idle */
+    public synchronized int getTotalCount() {
+        return total;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /** @return how many times a connection was handed out */
+    public long getAcquireCount() {
+        return acquired.get();
+    }
+
+    /** @return how many callers gave up waiting for a connection */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /** @return the mean time a caller waited for a connection, opening it included */
+    public double getAverageAcquireMillis() {
+        long count = acquired.get();
+        return count == 0 ? 0 : waitNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /** @return how many physical connections were opened */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /** @return how many connections were closed for being idle too long or failing validation */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /** @return how many borrowed connections were reported as possibly leaked */
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[total=%d, active=%d, idle=%d, acquired=%d, timeouts=%d, "
+                        + "avgAcquire=%.2fms, maxAcquire=%.2fms, created=%d, evicted=%d, leaks=%d]",
+                getTotalCount(), getActiveCount(), getIdleCount(), getAcquireCount(), getTimeoutCount(),
+                getAverageAcquireMillis(), getMaxAcquireMillis(), getCreatedCount(), getEvictedCount(), getLeakCount());
+    }
+
+    // An idle connection that passes validation, or null if there are none left
+    private Entry takeIdle() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (isUsable(entry)) {
+                return entry;
+            }
+            evicted.incrementAndGet();
+            synchronized (this) {
+                discard(entry);
+            }
+        }
+    }
+
+    private Entry open() throws SQLException {
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            total++;
+        }
+        try {
+            Entry entry = new Entry(factory.create());
+            created.incrementAndGet();
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                total--;
+            }
+            throw e;
+        }
+    }
+
+    // Only connections idle for a while are checked, so a busy pool does not pay a round trip per borrow
+    private boolean isUsable(Entry entry) {
+        if (System.currentTimeMillis() - entry.returnedAt < settings.getValidationIntervalMillis()) {
+            return true;
+        }
+        try {
+            if (settings.getValidationQuery() == null) {
+                return entry.connection.isValid((int) Math.max(1, settings.getAcquireTimeoutMillis() / 1000));
+            }
+            try (var statement = entry.connection.createStatement()) {
+                statement.execute(settings.getValidationQuery());
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Called by a lent connection's close()
+    private void giveBack(Entry entry) {
+        borrowed.remove(entry);
+        boolean healthy;
+        try {
+            healthy = !entry.connection.isClosed();
+            if (healthy && !entry.connection.getAutoCommit()) {
+                entry.connection.rollback();
+                entry.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+        synchronized (this) {
+            if (healthy && !closed) {
+                entry.returnedAt = System.currentTimeMillis();
+                idle.addFirst(entry);
+            } else {
+                discard(entry);
+            }
+        }
+        permits.release();
+    }
+
+    // Closes a connection the pool no longer holds; the caller holds the lock
+    private void discard(Entry entry) {
+        total--;
+        try {
+            entry.connection.close();
+        } catch (SQLException e) {
+            // Already broken
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                // The oldest idle connections are at the end
+                while (total > settings.getMinSize() && !idle.isEmpty()
+                        && now - idle.peekLast().returnedAt > settings.getIdleTimeoutMillis()) {
+                    discard(idle.pollLast());
+                    evicted.incrementAndGet();
+                }
+            }
+            while (true) {
+                synchronized (this) {
+                    if (closed || total >= settings.getMinSize()) {
+                        break;
+                    }
+                }
+                Entry entry = open();
+                synchronized (this) {
+                    entry.returnedAt = System.currentTimeMillis();
+                    idle.addLast(entry);
+                }
+            }
+            long threshold = settings.getLeakThresholdMillis();
+            if (threshold > 0) {
+                for (Entry entry : borrowed) {
+                    if (!entry.leakReported && now - entry.borrowedAt > threshold) {
+                        entry.leakReported = true;
+                        leaks.incrementAndGet();
+                        System.out.println("Possible connection leak: borrowed " + (now - entry.borrowedAt)
+                                + " ms ago and not returned");
+                        if (entry.borrower != null) {
+                            entry.borrower.printStackTrace(System.out);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // The database may be down; try again next time
+            System.out.println("Connection pool upkeep failed: " + e.getMessage());
+        }
+    }
+
+    private final class Entry {
+        private final Connection connection;
+        private volatile long borrowedAt;
+        private volatile long returnedAt;
+        private volatile Throwable borrower;
+        private volatile boolean leakReported;
+
+        Entry(Connection connection) {
+            this.connection = connection;
+        }
+
+        // A fresh handle each time, so closing a stale handle twice cannot return the connection twice
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private boolean returned;
+
+        Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + entry.connection;
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(entry.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dataaccess;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.Properties;
 
@@ -8,6 +10,10 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+    private static ConnectionPool pool;
+    // The connection of the transaction running on this thread, if any
+    private static final ThreadLocal<Connection> transaction = new ThreadLocal<>();
 
     /*
      * Load the database information for the db.properties file.
@@ -28,24 +34,87 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the properties specified in
-     * db.properties. Connections to the database should be short-lived, and you must close the
-     * connection when you are done with it. The easiest way to do that is with a try-with-resource
-     * block. <br>
+     * Borrows a connection to the database from the pool, with the catalog set based upon the
+     * properties specified in db.properties. Connections should be short-lived, and you must
+     * close the connection when you are done with it, which returns it to the pool. The easiest
+     * way to do that is with a try-with-resource block. <br>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
+     * Inside a {@link SQLTransactionManager} unit of work this is the transaction's connection,
+     * and closing it leaves it open for the rest of the work.
      */
     public static Connection getConnection() throws DataAccessException {
+        Connection bound = transaction.get();
+        if (bound != null) {
+            return shared(bound);
+        }
+        return getPool().getConnection();
+    }
+
+    static boolean inTransaction() {
+        return transaction.get() != null;
+    }
+
+    static void bindTransaction(Connection conn) {
+        transaction.set(conn);
+    }
+
+    static void unbindTransaction() {
+        transaction.remove();
+    }
+
+    // A view of the transaction's connection that the data access classes can close freely
+    private static Connection shared(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    /**
+     * @return the connection pool, opened on first use so that the database exists by then
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
+        }
+        return pool;
+    }
+
+    /** Closes the pooled connections; the next {@link #getConnection()} opens a new pool. */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            System.out.println("Closing " + pool);
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
         try {
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
             conn.setCatalog(databaseName);
-            return conn;
         } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+            conn.close();
+            throw e;
         }
+        return conn;
     }
 
     private static void loadPropertiesFromResources() {
@@ -68,6 +137,17 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // Lets the driver send a JDBC batch of inserts as one multi-row statement
+        connectionUrl = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
+
+        // Optional pool tuning; times are in milliseconds. Leak detection is off unless a threshold is set.
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.acquireTimeout", "5000")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeout", "300000")),
+                Long.parseLong(props.getProperty("db.pool.validationInterval", "30000")),
+                Long.parseLong(props.getProperty("db.pool.leakThreshold", "0")),
+                props.getProperty("db.pool.validationQuery", "SELECT 1"));
     }
 }
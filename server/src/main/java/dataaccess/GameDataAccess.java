@@ -11,6 +11,10 @@ public interface GameDataAccess extends DataAccess {
     // Retrieve a specified game with the given game ID.
     public GameData getGame(int gameID) throws ResponseException;
 
+    // Retrieve a game to change it. Inside a unit of work the game is locked until the work
+    // commits, so concurrent changes to one game take turns.
+    public GameData getGameForUpdate(int gameID) throws ResponseException;
+
     // Retrieve all games.
     public Collection<GameData> listGames() throws ResponseException;
 
@@ -18,4 +22,7 @@ public interface GameDataAccess extends DataAccess {
     // to a given gameID. This is used when players join a game or when a move is
     // made.
     public GameData updateGame(int gameID, GameData game) throws ResponseException;
+
+    // Updates several games at once, as one batch where the store allows it.
+    public void updateGames(Collection<GameData> games) throws ResponseException;
 }
@@ -34,6 +34,11 @@ public class MemoryGameDataAccess implements GameDataAccess {
         return games.get(getGameIndexFromID(gameID));
     }
 
+    // Retrieve a game to change it. MemoryTransactionManager already runs one unit of work at a time.
+    public GameData getGameForUpdate(int gameID) {
+        return getGame(gameID);
+    }
+
     // Retrieve all games.
     public Collection<GameData> listGames() {
         return games;
@@ -50,4 +55,11 @@ public class MemoryGameDataAccess implements GameDataAccess {
         games.set(index, game);
         return game;
     }
+
+    // Updates several games at once.
+    public void updateGames(Collection<GameData> games) throws ResponseException {
+        for (GameData game : games) {
+            updateGame(game.getGameId(), game);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package dataaccess;
+
+import exception.ResponseException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs units of work against the memory data access classes one at a time. The memory
+ * classes change data in place, so nothing is rolled back when work fails.
+ */
+public class MemoryTransactionManager implements TransactionManager {
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public <T> T inTransaction(UnitOfWork<T> work) throws ResponseException {
+        lock.lock();
+        try {
+            return work.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
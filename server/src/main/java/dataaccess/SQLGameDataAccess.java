@@ -1,14 +1,43 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import exception.ResponseException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import model.GameData;
+import serialization.Serializer;
 
+/**
+ * Stores games as a snapshot plus a log of the moves played since.
+ * <p>
+ * The {@code json} column of a game row holds a snapshot of the game without its move list,
+ * {@code snapshotPly} the number of plies it was taken after, and {@code game_move} one row per
+ * ply with the move packed into a small integer (see {@link PackedMove}). A move appends one row
+ * instead of rewriting the snapshot; the snapshot is rewritten every {@link #SNAPSHOT_INTERVAL}
+ * plies, when the game ends, and when its history no longer extends what is stored. The move
+ * log keeps every move of the game, from the first, so the snapshot stays the same size however
+ * long the game runs.
+ * <p>
+ * Reading a game loads the snapshot, restores the moves up to {@code snapshotPly} from the log
+ * and replays the ones after it. {@link #listGames} only reads the moves after each snapshot, so
+ * listed games are at their current position but their move history starts at the snapshot.
+ * <p>
+ * {@link #updateGames} writes many games with one JDBC batch per kind of statement, which the
+ * driver sends as multi-row statements.
+ */
 public class SQLGameDataAccess extends SQLDataAccess implements GameDataAccess {
+    static final int SNAPSHOT_INTERVAL = 20;
+
     private static final String[] CREATE_STATEMENTS = {
             """
     CREATE TABLE IF NOT EXISTS game (
@@ -17,94 +46,310 @@ public class SQLGameDataAccess extends SQLDataAccess implements GameDataAccess {
       blackUsername varchar(256) NULL,
       gameName varchar(256) NOT NULL,
       json TEXT NULL,
+      snapshotPly int NOT NULL DEFAULT 0,
       PRIMARY KEY (gameID),
       FOREIGN KEY (whiteUsername) REFERENCES user(username),
       FOREIGN KEY (blackUsername) REFERENCES user(username)
     );
+    """,
+            """
+    CREATE TABLE IF NOT EXISTS game_move (
+      gameID int NOT NULL,
+      ply int NOT NULL,
+      move smallint NOT NULL,
+      PRIMARY KEY (gameID, ply),
+      FOREIGN KEY (gameID) REFERENCES game(gameID) ON DELETE CASCADE
+    );
     """
     };
 
+    private static final String STANDARD_START = new ChessGame().toFen();
+
     public SQLGameDataAccess() throws ResponseException {
         super(CREATE_STATEMENTS);
+        addSnapshotPly();
+    }
+
+    // Tables made before snapshotPly existed get it, counted from the moves their snapshots still hold
+    private void addSnapshotPly() throws ResponseException {
+        try (var conn = DatabaseManager.getConnection();
+             var rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", "snapshotPly")) {
+            if (rs.next()) {
+                return;
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to configure database: %s", e.getMessage()));
+        }
+        executeUpdate("ALTER TABLE game ADD COLUMN snapshotPly int NOT NULL DEFAULT 0");
+        executeUpdate("UPDATE game SET snapshotPly = COALESCE(JSON_LENGTH(json, '$.moves'), 0)");
     }
 
     // Clears all games.
     public void clear() throws ResponseException {
-        var statement = "DELETE FROM game";
-        executeUpdate(statement);
+        executeUpdate("DELETE FROM game_move");
+        executeUpdate("DELETE FROM game");
     }
 
     // Create a new game.
     public GameData createGame(GameData game) throws ResponseException {
-        var statement =
-                "INSERT INTO game (whiteUsername, blackUsername, gameName, json) VALUES (?, ?, ?, ?)";
-        var json = game.getGame() == null ? null : new Gson().toJson(game.getGame());
+        var statement = "INSERT INTO game (whiteUsername, blackUsername, gameName, json, snapshotPly) "
+                + "VALUES (?, ?, ?, ?, ?)";
+        var json = game.getGame() == null ? null : snapshot(game.getGame());
+        var snapshotPly = game.getGame() == null ? 0 : game.getGame().getMoveHistory().size();
         var whiteUsername = game.getWhiteUsername();
         var blackUsername = game.getBlackUsername();
         var gameName = game.getGameName();
-        System.out.println(
-                "Creating game: " + whiteUsername + ", " + blackUsername + ", " + gameName + ", " + json);
-        var id = executeUpdate(statement, whiteUsername, blackUsername, gameName, json);
-        System.out.println("Created game with ID: " + id);
+        var id = executeUpdate(statement, whiteUsername, blackUsername, gameName, json, snapshotPly);
+        if (game.getGame() != null) {
+            appendMoves(id, game.getGame().getMoveHistory(), 0);
+        }
         return new GameData(id, whiteUsername, blackUsername, gameName, game.getGame());
     }
 
-    // Updates a chess game. It should replace the chess game string corresponding
-    // to a given gameID. This is used when players join a game or when a move is
-    // made.
+    // Updates a chess game. Moves played since the last update are appended to the move log;
+    // the snapshot is only rewritten when it is due.
     public GameData updateGame(int gameID, GameData game) throws ResponseException {
-        var statement =
-                "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ?, json = ? WHERE gameID"
-                        + " = ?";
-        executeUpdate(
-                statement,
-                game.getWhiteUsername(),
-                game.getBlackUsername(),
-                game.getGameName(),
-                new Gson().toJson(game.getGame()),
-                gameID);
-        return new GameData(
+        var updated = new GameData(
                 gameID,
                 game.getWhiteUsername(),
                 game.getBlackUsername(),
                 game.getGameName(),
                 game.getGame());
+        updateGames(List.of(updated));
+        return updated;
+    }
+
+    // Updates several games, at most one entry per game, with one JDBC batch per kind of
+    // statement and a single commit.
+    public void updateGames(Collection<GameData> games) throws ResponseException {
+        if (games.isEmpty()) {
+            return;
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            // Inside a unit of work the caller commits
+            boolean ownTransaction = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (var restart = conn.prepareStatement("DELETE FROM game_move WHERE gameID = ?");
+                 var append = conn.prepareStatement("INSERT INTO game_move (gameID, ply, move) VALUES (?, ?, ?)");
+                 var names = conn.prepareStatement(
+                         "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ? WHERE gameID = ?");
+                 var snapshot = conn.prepareStatement("UPDATE game SET whiteUsername = ?, blackUsername = ?, "
+                         + "gameName = ?, json = ?, snapshotPly = ? WHERE gameID = ?")) {
+                Map<Integer, LoggedMove> stored = lastMoves(conn, games);
+                for (GameData game : games) {
+                    int gameID = game.getGameId();
+                    List<ChessMove> moves = game.getGame().getMoveHistory();
+                    LoggedMove last = stored.get(gameID);
+                    int from = last == null ? 0 : last.ply();
+                    boolean rewrite;
+                    if (moves.size() < from || (from > 0 && PackedMove.of(moves.get(from - 1)) != last.move())) {
+                        // The history was replaced rather than extended, so the log starts over
+                        restart.setInt(1, gameID);
+                        restart.addBatch();
+                        from = 0;
+                        rewrite = true;
+                    } else {
+                        rewrite = game.getGame().isGameOver()
+                                || from / SNAPSHOT_INTERVAL != moves.size() / SNAPSHOT_INTERVAL;
+                    }
+                    for (int i = from; i < moves.size(); i++) {
+                        append.setInt(1, gameID);
+                        append.setInt(2, i + 1);
+                        append.setInt(3, PackedMove.of(moves.get(i)));
+                        append.addBatch();
+                    }
+                    var update = rewrite ? snapshot : names;
+                    update.setString(1, game.getWhiteUsername());
+                    update.setString(2, game.getBlackUsername());
+                    update.setString(3, game.getGameName());
+                    if (rewrite) {
+                        update.setString(4, snapshot(game.getGame()));
+                        update.setInt(5, moves.size());
+                    }
+                    update.setInt(rewrite ? 6 : 4, gameID);
+                    update.addBatch();
+                }
+                restart.executeBatch();
+                append.executeBatch();
+                names.executeBatch();
+                snapshot.executeBatch();
+                if (ownTransaction) {
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                if (ownTransaction) {
+                    conn.rollback();
+                }
+                throw e;
+            } finally {
+                if (ownTransaction) {
+                    conn.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("unable to update games: %s", e.getMessage()));
+        }
     }
 
     // Retrieve a specified game with the given game ID.
     public GameData getGame(int gameID) throws ResponseException {
+        return selectGame("SELECT * FROM game WHERE gameID = ?", gameID);
+    }
+
+    // Retrieve a game and lock its row until the surrounding transaction ends.
+    public GameData getGameForUpdate(int gameID) throws ResponseException {
+        return selectGame("SELECT * FROM game WHERE gameID = ? FOR UPDATE", gameID);
+    }
+
+    private GameData selectGame(String statement, int gameID) throws ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT * FROM game WHERE gameID = ?";
+            GameData game = null;
+            int snapshotPly = 0;
+            String json = null;
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return readGame(rs);
+                        game = readGame(rs);
+                        snapshotPly = rs.getInt("snapshotPly");
+                        json = rs.getString("json");
                     }
                 }
             }
+            if (game == null || game.getGame() == null) {
+                return game;
+            }
+            int[] history = new int[snapshotPly];
+            int logged = 0;
+            List<LoggedMove> later = new ArrayList<>();
+            var moves = "SELECT ply, move FROM game_move WHERE gameID = ? ORDER BY ply";
+            try (var ps = conn.prepareStatement(moves)) {
+                ps.setInt(1, gameID);
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int ply = rs.getInt("ply");
+                        if (ply <= snapshotPly) {
+                            history[ply - 1] = rs.getInt("move");
+                            logged++;
+                        } else {
+                            later.add(new LoggedMove(ply, rs.getInt("move")));
+                        }
+                    }
+                }
+            }
+            // Snapshots taken before the log existed still hold their moves and have no log rows
+            if (logged > 0 && logged == snapshotPly) {
+                game.getGame().setMoveHistory(startFen(json), history);
+            }
+            for (LoggedMove move : later) {
+                replay(game, move.ply(), move.move());
+            }
+            return game;
         } catch (Exception e) {
             throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
         }
-        return null;
     }
 
     // Retrieve all games.
     public Collection<GameData> listGames() throws ResponseException {
-        var result = new ArrayList<GameData>();
+        Map<Integer, GameData> result = new LinkedHashMap<>();
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT * FROM game";
             try (var ps = conn.prepareStatement(statement)) {
                 try (var rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        result.add(readGame(rs));
+                        GameData game = readGame(rs);
+                        result.put(game.getGameId(), game);
+                    }
+                }
+            }
+            // Only the moves after each snapshot, fewer than SNAPSHOT_INTERVAL per game
+            var moves = """
+                    SELECT m.gameID, m.ply, m.move FROM game_move m
+                    JOIN game g ON g.gameID = m.gameID AND g.json IS NOT NULL
+                    WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply""";
+            try (var ps = conn.prepareStatement(moves)) {
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        GameData game = result.get(rs.getInt("gameID"));
+                        if (game != null) {
+                            replay(game, rs.getInt("ply"), rs.getInt("move"));
+                        }
                     }
                 }
             }
         } catch (Exception e) {
             throw new ResponseException(500, String.format("Unable to read data: %s", e.getMessage()));
         }
-        return result;
+        return result.values();
+    }
+
+    // The last ply in the move log of each game and the move played there, so that a history
+    // that only matches the log in length is not taken for an extension of it; games stored
+    // before the log existed have none
+    private static Map<Integer, LoggedMove> lastMoves(Connection conn, Collection<GameData> games) throws SQLException {
+        var statement = new StringBuilder("""
+                SELECT m.gameID, m.ply, m.move FROM game_move m
+                JOIN (SELECT gameID, MAX(ply) AS ply FROM game_move WHERE gameID IN (""");
+        for (int i = 0; i < games.size(); i++) {
+            statement.append(i == 0 ? "?" : ", ?");
+        }
+        statement.append(") GROUP BY gameID) last ON m.gameID = last.gameID AND m.ply = last.ply");
+        Map<Integer, LoggedMove> lastMoves = new HashMap<>();
+        try (var ps = conn.prepareStatement(statement.toString())) {
+            int param = 1;
+            for (GameData game : games) {
+                ps.setInt(param++, game.getGameId());
+            }
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lastMoves.put(rs.getInt("gameID"), new LoggedMove(rs.getInt("ply"), rs.getInt("move")));
+                }
+            }
+        }
+        return lastMoves;
+    }
+
+    private record LoggedMove(int ply, int move) {
+    }
+
+    // Logs the moves after the first few already stored, in one multi-row insert
+    private void appendMoves(int gameID, List<ChessMove> moves, int from) throws ResponseException {
+        if (moves.size() <= from) {
+            return;
+        }
+        var statement = new StringBuilder("INSERT INTO game_move (gameID, ply, move) VALUES ");
+        var params = new Object[3 * (moves.size() - from)];
+        for (int i = from; i < moves.size(); i++) {
+            statement.append(i == from ? "(?, ?, ?)" : ", (?, ?, ?)");
+            int param = 3 * (i - from);
+            params[param] = gameID;
+            params[param + 1] = i + 1;
+            params[param + 2] = PackedMove.of(moves.get(i));
+        }
+        executeUpdate(statement.toString(), params);
+    }
+
+    // The game as JSON without its move list, which the log holds; the start position stays,
+    // so the logged moves can be attached again on reading
+    private static String snapshot(ChessGame game) {
+        JsonObject json = Serializer.GSON.toJsonTree(game).getAsJsonObject();
+        json.remove("moves");
+        return json.toString();
+    }
+
+    private static String startFen(String json) {
+        JsonObject snapshot = JsonParser.parseString(json).getAsJsonObject();
+        return snapshot.has("start") ? snapshot.get("start").getAsString() : STANDARD_START;
+    }
+
+    private static void replay(GameData game, int ply, int move) throws ResponseException {
+        try {
+            game.getGame().makeMove(PackedMove.toChessMove(move));
+        } catch (InvalidMoveException e) {
+            throw new ResponseException(500, String.format(
+                    "Move %d of game %d does not follow from the game: %s", ply, game.getGameId(), e.getMessage()));
+        }
     }
 
     private GameData readGame(ResultSet rs) throws SQLException {
@@ -113,7 +358,7 @@ public class SQLGameDataAccess extends SQLDataAccess implements GameDataAccess {
         var blackUsername = rs.getString("blackUsername");
         var gameName = rs.getString("gameName");
         var json = rs.getString("json");
-        var game = new Gson().fromJson(json, ChessGame.class);
+        var game = Serializer.GSON.fromJson(json, ChessGame.class);
         return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
     }
 }
@@ -0,0 +1,44 @@
+package dataaccess;
+
+import exception.ResponseException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs units of work in a database transaction. While the work runs, every
+ * {@link DatabaseManager#getConnection()} on the same thread gets the transaction's connection,
+ * so the SQL data access classes take part without being told.
+ */
+public class SQLTransactionManager implements TransactionManager {
+
+    public <T> T inTransaction(UnitOfWork<T> work) throws ResponseException {
+        if (DatabaseManager.inTransaction()) {
+            return work.run();
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            DatabaseManager.bindTransaction(conn);
+            try {
+                T result = work.run();
+                conn.commit();
+                return result;
+            } catch (ResponseException | RuntimeException e) {
+                rollback(conn);
+                throw e;
+            } finally {
+                DatabaseManager.unbindTransaction();
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new ResponseException(500, String.format("Unable to complete transaction: %s", e.getMessage()));
+        }
+    }
+
+    // Keeps the work's own error rather than a failure to roll back, which returning the connection retries
+    private static void rollback(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.out.println("Rollback failed: " + e.getMessage());
+        }
+    }
+}
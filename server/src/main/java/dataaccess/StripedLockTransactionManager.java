@@ -0,0 +1,46 @@
+package dataaccess;
+
+import exception.ResponseException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps units of work on the same game apart with in-process locks, while work on other games
+ * runs alongside. Each game maps to one of a fixed number of locks, so games that share a lock
+ * wait for each other but no lock is ever made or dropped per game.
+ * <p>
+ * This is for a data access layer whose store this process alone writes, like
+ * {@link WriteBehindGameDataAccess}. Nothing is rolled back when work fails, and work not tied
+ * to a game runs without a lock.
+ */
+public class StripedLockTransactionManager implements TransactionManager {
+    private final ReentrantLock[] locks;
+
+    public StripedLockTransactionManager() {
+        this(256);
+    }
+
+    /**
+     * @param stripes how many locks the games are spread over
+     */
+    public StripedLockTransactionManager(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T inTransaction(UnitOfWork<T> work) throws ResponseException {
+        return work.run();
+    }
+
+    public <T> T inTransaction(int gameID, UnitOfWork<T> work) throws ResponseException {
+        // Game IDs are handed out in order, so games made together get different locks
+        ReentrantLock lock = locks[Math.floorMod(gameID, locks.length)];
+        lock.lock();
+        try {
+            return work.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
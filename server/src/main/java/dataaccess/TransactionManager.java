@@ -0,0 +1,15 @@
+package dataaccess;
+
+import exception.ResponseException;
+
+public interface TransactionManager {
+    // Runs the work as one transaction: committed if it returns, rolled back if it throws.
+    // Work started inside another unit of work joins it.
+    public <T> T inTransaction(UnitOfWork<T> work) throws ResponseException;
+
+    // Runs the work as one transaction that only has to be kept apart from work on the same
+    // game. Managers that lock nothing finer than everything lock everything.
+    public default <T> T inTransaction(int gameID, UnitOfWork<T> work) throws ResponseException {
+        return inTransaction(work);
+    }
+}
@@ -0,0 +1,11 @@
+package dataaccess;
+
+import exception.ResponseException;
+
+/**
+ * A piece of service logic whose data access calls should commit or roll back together.
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+    T run() throws ResponseException;
+}
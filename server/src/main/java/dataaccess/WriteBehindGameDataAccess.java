@@ -0,0 +1,277 @@
+package dataaccess;
+
+import chess.ChessGame;
+import exception.ResponseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import model.GameData;
+
+/**
+ * Keeps recently used games in memory in front of another {@link GameDataAccess}, and writes
+ * changes to it later in batches.
+ * <p>
+ * An update is stored in memory and returns at once; the games changed since the last flush
+ * are written together with {@link GameDataAccess#updateGames} every flush interval, or sooner
+ * once the flush threshold of changed games is reached. How long a change may wait depends on
+ * the {@link Durability}. Creating a game is written through, since the store assigns its ID.
+ * <p>
+ * This is only correct while this process is the only one changing games, and only if
+ * changes to one game do not overlap, as under {@link StripedLockTransactionManager}. Games are
+ * copied in and out, so callers can change what they get without affecting the cache.
+ * {@link #close()} writes whatever is left.
+ * <p>
+ * At most {@code maxCachedGames} unchanged games are kept, least recently used first out. Changed
+ * games stay until they are written whatever the bound, so between flushes the cache can hold
+ * that many more.
+ */
+public class WriteBehindGameDataAccess implements GameDataAccess, AutoCloseable {
+
+    /**
+     * When a change must reach the store before the update returns.
+     */
+    public enum Durability {
+        /** Never; every change waits for the next flush. */
+        WRITE_BEHIND,
+        /** When the change ends the game, so that a finished game is never lost. */
+        SYNC_GAME_END,
+        /** Always, which makes the cache a read cache. */
+        WRITE_THROUGH
+    }
+
+    private final GameDataAccess store;
+    private final Durability durability;
+    private final int flushThreshold;
+    private final int maxCachedGames;
+
+    // Games by ID, least recently used first; guarded by itself
+    private final Map<Integer, GameData> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped by every change, so a store read that raced with one is not remembered; guarded by cache
+    private long generation;
+    // The latest unwritten version of each changed game
+    private final Map<Integer, GameData> dirty = new ConcurrentHashMap<>();
+    // Held while writing to the store, so versions of a game reach it in order
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindGameDataAccess(GameDataAccess store) {
+        this(store, Durability.SYNC_GAME_END, 1_000, 100, 10_000);
+    }
+
+    /**
+     * @param flushIntervalMillis how often changed games are written
+     * @param flushThreshold      how many changed games start a write before the interval is up
+     * @param maxCachedGames      how many unchanged games to keep; changed games are kept until written,
+     *                            even past it
+     */
+    public WriteBehindGameDataAccess(GameDataAccess store, Durability durability, long flushIntervalMillis,
+                                     int flushThreshold, int maxCachedGames) {
+        this.store = store;
+        this.durability = durability;
+        this.flushThreshold = flushThreshold;
+        this.maxCachedGames = maxCachedGames;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Clears all games, written or not.
+    public void clear() throws ResponseException {
+        synchronized (flushLock) {
+            dirty.clear();
+            synchronized (cache) {
+                cache.clear();
+                generation++;
+            }
+            store.clear();
+        }
+    }
+
+    // Create a new game in the store, which assigns its ID, and cache it.
+    public GameData createGame(GameData game) throws ResponseException {
+        GameData created = store.createGame(game);
+        remember(copy(created));
+        return created;
+    }
+
+    // Retrieve a specified game with the given game ID, from memory if it is there.
+    public GameData getGame(int gameID) throws ResponseException {
+        GameData game = dirty.get(gameID);
+        long seen;
+        synchronized (cache) {
+            if (game == null) {
+                game = cache.get(gameID);
+            }
+            seen = generation;
+        }
+        if (game != null) {
+            return copy(game);
+        }
+        game = store.getGame(gameID);
+        if (game == null) {
+            return null;
+        }
+        synchronized (cache) {
+            // A change since the lookup may have cached a newer version than the one read
+            if (generation == seen && cache.putIfAbsent(gameID, copy(game)) == null) {
+                evict();
+            }
+        }
+        return game;
+    }
+
+    // Retrieve a game to change it. The cache holds no locks; callers keep changes to one game
+    // from overlapping.
+    public GameData getGameForUpdate(int gameID) throws ResponseException {
+        return getGame(gameID);
+    }
+
+    // Retrieve all games, with changes not written yet.
+    public Collection<GameData> listGames() throws ResponseException {
+        List<GameData> games = new ArrayList<>();
+        for (GameData game : store.listGames()) {
+            GameData changed = dirty.get(game.getGameId());
+            games.add(changed == null ? game : copy(changed));
+        }
+        return games;
+    }
+
+    // Updates a chess game in memory, and in the store too if the durability calls for it.
+    public GameData updateGame(int gameID, GameData game) throws ResponseException {
+        GameData version = new GameData(gameID, game.getWhiteUsername(), game.getBlackUsername(),
+                game.getGameName(), game.getGame() == null ? null : new ChessGame(game.getGame()));
+        // Once published, the version is copied and flushed by other threads without the game's
+        // lock, so its board's lazy bitboards are built while it is still private
+        if (version.getGame() != null) {
+            version.getGame().positionKey();
+        }
+        boolean sync = durability == Durability.WRITE_THROUGH
+                || (durability == Durability.SYNC_GAME_END && version.getGame() != null
+                && version.getGame().isGameOver());
+        dirty.put(gameID, version);
+        synchronized (cache) {
+            generation++;
+            cache.put(gameID, version);
+            evict();
+        }
+        if (sync) {
+            flush(List.of(gameID));
+        } else if (dirty.size() >= flushThreshold && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flushQuietly();
+            });
+        }
+        return copy(version);
+    }
+
+    // Updates several games, all in memory first.
+    public void updateGames(Collection<GameData> games) throws ResponseException {
+        for (GameData game : games) {
+            updateGame(game.getGameId(), game);
+        }
+    }
+
+    /**
+     * Writes every changed game to the store now.
+     */
+    public void flush() throws ResponseException {
+        flush(new ArrayList<>(dirty.keySet()));
+    }
+
+    /** @return the number of changed games not written yet */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /** @return the number of games in memory, changed or not */
+    public int getCachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Stops the timed flushes and writes every changed game, trying until none is left or a
+     * write fails.
+     */
+    @Override
+    public void close() throws ResponseException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!dirty.isEmpty()) {
+            flush();
+        }
+    }
+
+    // Writes the current versions of some games in one batch; a game changed again meanwhile stays dirty
+    private void flush(Collection<Integer> gameIDs) throws ResponseException {
+        synchronized (flushLock) {
+            List<GameData> batch = new ArrayList<>(gameIDs.size());
+            for (int gameID : gameIDs) {
+                GameData version = dirty.get(gameID);
+                if (version != null) {
+                    batch.add(version);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            store.updateGames(batch);
+            for (GameData version : batch) {
+                dirty.remove(version.getGameId(), version);
+            }
+            synchronized (cache) {
+                evict();
+            }
+        }
+    }
+
+    // The timed and threshold flushes leave failed writes dirty for the next one
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (ResponseException | RuntimeException e) {
+            System.out.println("Unable to flush games: " + e.getMessage());
+        }
+    }
+
+    private void remember(GameData game) {
+        synchronized (cache) {
+            cache.put(game.getGameId(), game);
+            evict();
+        }
+    }
+
+    // Forgets the least recently used unchanged games past the bound; the caller holds the cache lock
+    private void evict() {
+        Iterator<Integer> gameIDs = cache.keySet().iterator();
+        while (cache.size() > maxCachedGames && gameIDs.hasNext()) {
+            if (!dirty.containsKey(gameIDs.next())) {
+                gameIDs.remove();
+            }
+        }
+    }
+
+    private static GameData copy(GameData game) {
+        return new GameData(game.getGameId(), game.getWhiteUsername(), game.getBlackUsername(), game.getGameName(),
+                game.getGame() == null ? null : new ChessGame(game.getGame()));
+    }
+}
@@ -1,36 +1,69 @@
 package server;
 
+import chess.engine.OpeningBook;
+import chess.tablebase.Tablebase;
 import com.google.gson.Gson;
 import dataaccess.*;
 import exception.ResponseException;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import model.*;
+import serialization.Serializer;
 import server.websocket.WebSocketHandler;
 import service.*;
 
 public class Server {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Serializer.GSON;
+    // System property naming a Polyglot opening book file; without it no book moves are served
+    private static final String BOOK_PROPERTY = "chess.book";
+    // System property naming a directory of endgame tables used to adjudicate drawn endings
+    private static final String TABLEBASE_PROPERTY = "chess.tablebase";
+    // System property that, set to false, reads and writes every game change straight to the database
+    private static final String WRITE_BEHIND_PROPERTY = "chess.writeBehind";
 
     private final Javalin javalin;
 
     private final UserDataAccess userDataAccess;
     private final AuthDataAccess authDataAccess;
     private final GameDataAccess gameDataAccess;
+    private final WriteBehindGameDataAccess gameCache;
 
     private final UserService userService;
     private final GameService gameService;
     private final DataService dataService;
+    private final AnalysisService analysisService;
 
     public Server() {
         try {
             userDataAccess = new SQLUserDataAccess();
-            authDataAccess = new SQLAuthDataAccess();
-            gameDataAccess = new SQLGameDataAccess();
+            // Every request and WebSocket command looks up its token, so lookups are cached
+            authDataAccess = new CachingAuthDataAccess(new SQLAuthDataAccess());
+            // Behind the cache this process is the only writer, so an in-process lock per game
+            // keeps changes to it apart; without it the database row lock does
+            TransactionManager transactionManager;
+            if (Boolean.parseBoolean(System.getProperty(WRITE_BEHIND_PROPERTY, "true"))) {
+                gameCache = new WriteBehindGameDataAccess(new SQLGameDataAccess());
+                gameDataAccess = gameCache;
+                transactionManager = new StripedLockTransactionManager();
+            } else {
+                gameCache = null;
+                gameDataAccess = new SQLGameDataAccess();
+                transactionManager = new SQLTransactionManager();
+            }
 
             userService = new UserService(userDataAccess, authDataAccess);
-            gameService = new GameService(authDataAccess, gameDataAccess);
+            String bookPath = System.getProperty(BOOK_PROPERTY);
+            OpeningBook openingBook = bookPath == null ? null : new OpeningBook(Path.of(bookPath));
+            String tablebasePath = System.getProperty(TABLEBASE_PROPERTY);
+            Tablebase tablebase = tablebasePath == null ? null : new Tablebase(Path.of(tablebasePath));
+            gameService = new GameService(authDataAccess, gameDataAccess, openingBook, tablebase,
+                    transactionManager);
             dataService = new DataService(userDataAccess, authDataAccess, gameDataAccess);
+            analysisService = new AnalysisService(authDataAccess);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to initialize server", ex);
         }
@@ -51,6 +84,8 @@ public class Server {
         javalin.get("/game", this::listGames);
         javalin.post("/game", this::createGame);
         javalin.put("/game", this::joinGame);
+        javalin.get("/game/{gameID}/book", this::bookMoves);
+        javalin.post("/analysis/batch", this::analyzeBatch);
     }
 
     public int run(int desiredPort) {
@@ -170,8 +205,75 @@ public class Server {
         }
     }
 
+    private void bookMoves(Context ctx) {
+        ctx.contentType("application/json");
+        try {
+            String authToken = ctx.header("authorization");
+            int gameID;
+            try {
+                gameID = Integer.parseInt(ctx.pathParam("gameID"));
+            } catch (NumberFormatException e) {
+                throw new ResponseException(400, "Error: bad request");
+            }
+            ctx.status(200);
+            ctx.result(GSON.toJson(gameService.getBookMoves(authToken, gameID)));
+        } catch (ResponseException e) {
+            ctx.status(e.getStatusCode());
+            ctx.result(GSON.toJson(new ErrorResponse(e.getMessage())));
+        } catch (Exception e) {
+            ctx.status(500);
+            ctx.result(GSON.toJson(new ErrorResponse("Error: " + e.getMessage())));
+        }
+    }
+
+    // Streams one JSON result per line as each position is analyzed, in the order given
+    private void analyzeBatch(Context ctx) {
+        ctx.contentType("application/json");
+        AnalysisService.Batch batch;
+        try {
+            String authToken = ctx.header("authorization");
+            AnalysisRequest request = GSON.fromJson(ctx.body(), AnalysisRequest.class);
+            batch = analysisService.startBatch(authToken, request);
+        } catch (ResponseException e) {
+            ctx.status(e.getStatusCode());
+            ctx.result(GSON.toJson(new ErrorResponse(e.getMessage())));
+            return;
+        } catch (Exception e) {
+            ctx.status(500);
+            ctx.result(GSON.toJson(new ErrorResponse("Error: " + e.getMessage())));
+            return;
+        }
+
+        ctx.status(200);
+        ctx.contentType("application/x-ndjson");
+        // Closing the batch cancels whatever is left of it, as when the client goes away
+        try (batch; OutputStream out = ctx.res().getOutputStream()) {
+            try {
+                for (AnalysisResult result = batch.next(); result != null; result = batch.next()) {
+                    out.write((GSON.toJson(result) + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (ResponseException e) {
+                // The status is already sent, so a failure partway through ends the stream with an error line
+                out.write((GSON.toJson(new ErrorResponse(e.getMessage())) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // The client disconnected
+        }
+    }
+
     public void stop() {
+        analysisService.shutdown();
         javalin.stop();
+        System.out.println("Stopping with " + authDataAccess);
+        if (gameCache != null) {
+            try {
+                gameCache.close();
+            } catch (ResponseException e) {
+                System.out.println("Unable to write cached games: " + e.getMessage());
+            }
+        }
+        DatabaseManager.closePool();
     }
 
     public void clear() throws ResponseException {
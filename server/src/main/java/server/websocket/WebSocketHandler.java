@@ -8,6 +8,7 @@ import exception.ResponseException;
 import io.javalin.websocket.*;
 import model.AuthData;
 import model.GameData;
+import serialization.Serializer;
 import service.GameService;
 import websocket.messages.*;
 import websocket.commands.MakeMoveCommand;
@@ -18,7 +19,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class WebSocketHandler {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Serializer.GSON;
 
     // gameID -> set of session IDs connected to that game
     private final Map<Integer, Set<String>> gameSessions = new ConcurrentHashMap<>();
@@ -112,6 +113,17 @@ public class WebSocketHandler {
                 broadcastAll(cmd.getGameID(), new Notification(nextPlayer + " is in checkmate! Game over."));
             } else if (chessGame.isInStalemate(nextTurn)) {
                 broadcastAll(cmd.getGameID(), new Notification("Stalemate! The game is a draw."));
+            } else if (chessGame.isThreefoldRepetition()) {
+                broadcastAll(cmd.getGameID(), new Notification("Threefold repetition! The game is a draw."));
+            } else if (chessGame.isFiftyMoveRule()) {
+                broadcastAll(cmd.getGameID(), new Notification("Fifty moves without a capture or pawn move! "
+                        + "The game is a draw."));
+            } else if (chessGame.isInsufficientMaterial()) {
+                broadcastAll(cmd.getGameID(), new Notification("Insufficient material! The game is a draw."));
+            } else if (chessGame.isGameOver()) {
+                // Nothing above ended it, so the endgame tables called it drawn
+                broadcastAll(cmd.getGameID(), new Notification("Neither side can win this ending! "
+                        + "The game is a draw."));
             } else if (chessGame.isInCheck(nextTurn)) {
                 broadcastAll(cmd.getGameID(), new Notification(nextPlayer + " is in check!"));
             }
@@ -0,0 +1,319 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import dataaccess.AuthDataAccess;
+import exception.ResponseException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.AnalysisRequest;
+import model.AnalysisResult;
+
+/**
+ * Analyzes batches of positions with the engine on a fixed pool of worker threads.
+ * <p>
+ * Every position is one job on a bounded queue shared by all batches. A batch keeps only a
+ * few jobs queued or running at a time and submits more as its results are taken, in order,
+ * so a client that reads slowly holds back its own batch and nobody else's. When the queue
+ * stays full for longer than the submit timeout the batch fails with a 503. Cancelling a
+ * batch, as the server does when the client goes away, drops its queued jobs and stops its
+ * running searches.
+ */
+public class AnalysisService {
+    public static final int MAX_POSITIONS = 10_000;
+
+    // Limits for each position: the default when a request sets none, and the most allowed
+    private static final long DEFAULT_NODES = 200_000;
+    private static final int MAX_DEPTH = 32;
+    private static final long MAX_NODES = 5_000_000;
+    private static final long MAX_MILLIS = 10_000;
+
+    private static final int TABLE_MB = 16;
+
+    private final AuthDataAccess authDataAccess;
+    private final ThreadPoolExecutor workers;
+    // One permit per job that may be running or queued, so submitting never overflows the queue
+    private final Semaphore capacity;
+    private final int window;
+    private final long submitTimeoutMillis;
+    // Each worker thread keeps its own search and transposition table between jobs
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(TABLE_MB)));
+
+    public AnalysisService(AuthDataAccess authDataAccess) {
+        this(authDataAccess, Runtime.getRuntime().availableProcessors(), 256, 10_000);
+    }
+
+    /**
+     * @param threads             worker threads running searches
+     * @param queueCapacity       jobs that may wait for a worker, across all batches
+     * @param submitTimeoutMillis how long a batch waits for room on a full queue before failing
+     */
+    public AnalysisService(AuthDataAccess authDataAccess, int threads, int queueCapacity, long submitTimeoutMillis) {
+        this.authDataAccess = authDataAccess;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "analysis-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.capacity = new Semaphore(threads + queueCapacity, true);
+        this.window = 2 * threads;
+        this.submitTimeoutMillis = submitTimeoutMillis;
+    }
+
+    /**
+     * Checks a request and starts analyzing its positions.
+     *
+     * @throws ResponseException 401 for a bad token, 400 for a malformed request, 503 if the
+     *                           queue has no room for the first positions
+     */
+    public Batch startBatch(String authToken, AnalysisRequest request) throws ResponseException {
+        if (authDataAccess.getAuth(authToken) == null) {
+            throw new ResponseException(401, "Error: unauthorized");
+        }
+        if (request == null || (request.getFens() == null) == (request.getPgn() == null)) {
+            throw new ResponseException(400, "Error: give either fens or pgn");
+        }
+        if (request.getDepth() < 0 || request.getNodes() < 0 || request.getMillis() < 0) {
+            throw new ResponseException(400, "Error: limits cannot be negative");
+        }
+        List<Position> positions = request.getFens() != null ? fromFens(request.getFens()) : fromPgn(request.getPgn());
+        Batch batch = new Batch(positions, limits(request));
+        batch.fill();
+        return batch;
+    }
+
+    /**
+     * Stops every running search and lets the worker threads end. Positions still queued are
+     * dropped, and batches waiting for them get a 503.
+     */
+    public void shutdown() {
+        for (Runnable queued : workers.shutdownNow()) {
+            if (queued instanceof Batch.Job job) {
+                job.abandon();
+            }
+        }
+    }
+
+    // The request's limits within the server's; every search is bounded in time
+    private static SearchLimits limits(AnalysisRequest request) {
+        int depth = Math.min(request.getDepth(), MAX_DEPTH);
+        long nodes = Math.min(request.getNodes(), MAX_NODES);
+        if (depth == 0 && nodes == 0 && request.getMillis() == 0) {
+            nodes = DEFAULT_NODES;
+        }
+        long millis = request.getMillis() == 0 ? MAX_MILLIS : Math.min(request.getMillis(), MAX_MILLIS);
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    private static List<Position> fromFens(List<String> fens) throws ResponseException {
+        if (fens.size() > MAX_POSITIONS) {
+            throw new ResponseException(400, "Error: at most " + MAX_POSITIONS + " positions per batch");
+        }
+        List<Position> positions = new ArrayList<>(fens.size());
+        for (int i = 0; i < fens.size(); i++) {
+            try {
+                positions.add(new Position(i, null, null, ChessGame.fromFen(fens.get(i))));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseException(400, "Error: position " + i + ": " + e.getMessage());
+            }
+        }
+        return positions;
+    }
+
+    // Every position of every game's mainline, from its start position on
+    private static List<Position> fromPgn(String pgn) throws ResponseException {
+        List<Position> positions = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            int number = 0;
+            for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+                number++;
+                ChessGame replay = ChessGame.fromFen(game.getGame().getStartFen());
+                List<ChessMove> moves = game.getGame().getMoveHistory();
+                if (positions.size() + moves.size() + 1 > MAX_POSITIONS) {
+                    throw new ResponseException(400, "Error: at most " + MAX_POSITIONS + " positions per batch");
+                }
+                positions.add(new Position(positions.size(), number, 0, new ChessGame(replay)));
+                for (int ply = 1; ply <= moves.size(); ply++) {
+                    replay.doMove(moves.get(ply - 1));
+                    positions.add(new Position(positions.size(), number, ply, new ChessGame(replay)));
+                }
+            }
+        } catch (IOException e) {
+            throw new ResponseException(400, "Error: " + e.getMessage());
+        }
+        return positions;
+    }
+
+    private record Position(int index, Integer game, Integer ply, ChessGame chessGame) {
+    }
+
+    /**
+     * The results of one request, produced in the order of its positions. Not thread-safe,
+     * except for {@link #cancel()}.
+     */
+    public final class Batch implements AutoCloseable {
+        private final List<Position> positions;
+        private final SearchLimits limits;
+        private final Deque<Job> inFlight = new ArrayDeque<>();
+        private int submitted;
+        private volatile boolean cancelled;
+
+        private Batch(List<Position> positions, SearchLimits limits) {
+            this.positions = positions;
+            this.limits = limits;
+        }
+
+        /** @return the number of positions in the batch */
+        public int size() {
+            return positions.size();
+        }
+
+        /**
+         * Waits for the next position's result.
+         *
+         * @return the result, or null once every position has been reported or the batch
+         * was cancelled
+         * @throws ResponseException 503 if the queue stayed full or the service shut down, 500 if the
+         *                           search failed
+         */
+        public AnalysisResult next() throws ResponseException {
+            fill();
+            Job job = inFlight.poll();
+            if (job == null || cancelled) {
+                return null;
+            }
+            try {
+                return job.result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new ResponseException(500, "Error: interrupted");
+            } catch (ExecutionException | CancellationException e) {
+                if (cancelled) {
+                    return null;
+                }
+                cancel();
+                if (e instanceof CancellationException) {
+                    throw new ResponseException(503, "Error: analysis is shut down");
+                }
+                throw new ResponseException(500, "Error: analysis failed");
+            }
+        }
+
+        /**
+         * Drops the positions not yet analyzed and stops the ones being analyzed. Safe to call
+         * from any thread.
+         */
+        public void cancel() {
+            // Each search of this batch checks the flag itself, so no other batch's search is stopped
+            cancelled = true;
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+
+        // Submits positions until the batch has its share of jobs queued or running
+        private void fill() throws ResponseException {
+            while (!cancelled && inFlight.size() < window && submitted < positions.size()) {
+                // Only wait for room when there is nothing of this batch left to report meanwhile
+                boolean acquired;
+                try {
+                    acquired = inFlight.isEmpty()
+                            ? capacity.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS)
+                            : capacity.tryAcquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    acquired = false;
+                }
+                if (!acquired) {
+                    if (inFlight.isEmpty()) {
+                        cancel();
+                        throw new ResponseException(503, "Error: analysis queue is full");
+                    }
+                    return;
+                }
+                Job job = new Job(positions.get(submitted++));
+                inFlight.add(job);
+                try {
+                    workers.execute(job);
+                } catch (RejectedExecutionException e) {
+                    // Shut down: the job never runs to give back its permit
+                    inFlight.removeLast();
+                    capacity.release();
+                    cancel();
+                    throw new ResponseException(503, "Error: analysis is shut down");
+                }
+            }
+        }
+
+        private final class Job implements Runnable {
+            private final Position position;
+            private final CompletableFuture<AnalysisResult> result = new CompletableFuture<>();
+
+            Job(Position position) {
+                this.position = position;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    if (cancelled) {
+                        result.cancel(false);
+                        return;
+                    }
+                    result.complete(toResult(searches.get().search(position.chessGame(), limits, () -> cancelled)));
+                } catch (Throwable e) {
+                    // Whatever went wrong, the batch waiting on this result must not wait forever
+                    result.completeExceptionally(e);
+                    if (e instanceof Error error) {
+                        throw error;
+                    }
+                } finally {
+                    capacity.release();
+                }
+            }
+
+            // Gives up a job the pool dropped without running, in place of what run would do
+            void abandon() {
+                result.cancel(false);
+                capacity.release();
+            }
+
+            private AnalysisResult toResult(SearchResult searched) {
+                List<String> pv = new ArrayList<>();
+                for (ChessMove move : searched.getPrincipalVariation()) {
+                    pv.add(PackedMove.toString(PackedMove.of(move)));
+                }
+                int best = searched.getPackedBestMove();
+                return new AnalysisResult(position.index(), position.game(), position.ply(),
+                        position.chessGame().toFen(), best == 0 ? null : PackedMove.toString(best),
+                        searched.getScore(), searched.isMate(), searched.getDepth(), searched.getNodes(),
+                        searched.getMillis(), pv);
+            }
+        }
+    }
+}
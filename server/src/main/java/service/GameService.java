@@ -3,8 +3,12 @@ package service;
 import chess.ChessGame.TeamColor;
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.engine.OpeningBook;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Wdl;
 import dataaccess.*;
 import exception.ResponseException;
+import java.util.List;
 import model.*;
 import server.*;
 import chess.ChessGame;
@@ -12,10 +16,35 @@ import chess.ChessGame;
 public class GameService {
     private AuthDataAccess authDataAccess;
     private GameDataAccess gameDataAccess;
+    private OpeningBook openingBook;
+    private Tablebase tablebase;
+    private TransactionManager transactionManager;
 
     public GameService(AuthDataAccess authDataAccess, GameDataAccess gameDataAccess) {
+        this(authDataAccess, gameDataAccess, null, null);
+    }
+
+    public GameService(AuthDataAccess authDataAccess, GameDataAccess gameDataAccess, OpeningBook openingBook) {
+        this(authDataAccess, gameDataAccess, openingBook, null);
+    }
+
+    public GameService(AuthDataAccess authDataAccess, GameDataAccess gameDataAccess, OpeningBook openingBook,
+                       Tablebase tablebase) {
+        this(authDataAccess, gameDataAccess, openingBook, tablebase, new MemoryTransactionManager());
+    }
+
+    /**
+     * @param transactionManager runs each change to a game, from reading it to saving it, as one
+     *                           unit of work with that game locked; the auth token is checked
+     *                           before, so a slow lookup does not hold the lock
+     */
+    public GameService(AuthDataAccess authDataAccess, GameDataAccess gameDataAccess, OpeningBook openingBook,
+                       Tablebase tablebase, TransactionManager transactionManager) {
         this.authDataAccess = authDataAccess;
         this.gameDataAccess = gameDataAccess;
+        this.openingBook = openingBook;
+        this.tablebase = tablebase;
+        this.transactionManager = transactionManager;
     }
 
     public ListGamesResponse listGames(String authToken) throws ResponseException {
@@ -44,7 +73,12 @@ public class GameService {
         if (auth == null) {
             throw new ResponseException(401, "unauthorized");
         }
-        GameData game = gameDataAccess.getGame(joinGameRequest.getGameId());
+        return transactionManager.inTransaction(joinGameRequest.getGameId(),
+                () -> joinGameLocked(auth, joinGameRequest));
+    }
+
+    private GameData joinGameLocked(AuthData auth, JoinGameRequest joinGameRequest) throws ResponseException {
+        GameData game = gameDataAccess.getGameForUpdate(joinGameRequest.getGameId());
         if (game == null) {
             throw new ResponseException(400, "bad request");
         }
@@ -71,11 +105,12 @@ public class GameService {
     }
 
     public GameData makeMove(String authToken, int gameID, ChessMove move) throws ResponseException {
-        AuthData auth = authDataAccess.getAuth(authToken);
-        if (auth == null) {
-            throw new ResponseException(401, "Error: unauthorized");
-        }
-        GameData game = gameDataAccess.getGame(gameID);
+        AuthData auth = authorize(authToken);
+        return transactionManager.inTransaction(gameID, () -> makeMoveLocked(auth, gameID, move));
+    }
+
+    private GameData makeMoveLocked(AuthData auth, int gameID, ChessMove move) throws ResponseException {
+        GameData game = gameDataAccess.getGameForUpdate(gameID);
         if (game == null) {
             throw new ResponseException(400, "Error: bad request");
         }
@@ -94,19 +129,27 @@ public class GameService {
         } catch (InvalidMoveException e) {
             throw new ResponseException(400, "Error: " + e.getMessage());
         }
+        // No legal reply means checkmate or stalemate; a repeated, fifty-move or dead position
+        // is drawn, and so is an ending the tablebase says neither side can win. Either way the
+        // game is over.
         TeamColor nextTurn = game.getGame().getTeamTurn();
-        if (game.getGame().isInCheckmate(nextTurn) || game.getGame().isInStalemate(nextTurn)) {
+        if (!game.getGame().hasAnyLegalMove(nextTurn) || game.getGame().isDraw()
+                || (tablebase != null && tablebase.probe(game.getGame()) == Wdl.DRAW)) {
             game.getGame().setGameOver(true);
         }
         return gameDataAccess.updateGame(gameID, game);
     }
 
     public void leaveGame(String authToken, int gameID) throws ResponseException {
-        AuthData auth = authDataAccess.getAuth(authToken);
-        if (auth == null) {
-            throw new ResponseException(401, "Error: unauthorized");
-        }
-        GameData game = gameDataAccess.getGame(gameID);
+        AuthData auth = authorize(authToken);
+        transactionManager.inTransaction(gameID, () -> {
+            leaveGameLocked(auth, gameID);
+            return null;
+        });
+    }
+
+    private void leaveGameLocked(AuthData auth, int gameID) throws ResponseException {
+        GameData game = gameDataAccess.getGameForUpdate(gameID);
         if (game == null) {
             throw new ResponseException(400, "Error: bad request");
         }
@@ -119,11 +162,15 @@ public class GameService {
     }
 
     public void resignGame(String authToken, int gameID) throws ResponseException {
-        AuthData auth = authDataAccess.getAuth(authToken);
-        if (auth == null) {
-            throw new ResponseException(401, "Error: unauthorized");
-        }
-        GameData game = gameDataAccess.getGame(gameID);
+        AuthData auth = authorize(authToken);
+        transactionManager.inTransaction(gameID, () -> {
+            resignGameLocked(auth, gameID);
+            return null;
+        });
+    }
+
+    private void resignGameLocked(AuthData auth, int gameID) throws ResponseException {
+        GameData game = gameDataAccess.getGameForUpdate(gameID);
         if (game == null) {
             throw new ResponseException(400, "Error: bad request");
         }
@@ -138,6 +185,28 @@ public class GameService {
         gameDataAccess.updateGame(gameID, game);
     }
 
+    public BookMovesResponse getBookMoves(String authToken, int gameID) throws ResponseException {
+        if (authDataAccess.getAuth(authToken) == null) {
+            throw new ResponseException(401, "Error: unauthorized");
+        }
+        GameData game = gameDataAccess.getGame(gameID);
+        if (game == null) {
+            throw new ResponseException(400, "Error: bad request");
+        }
+        if (openingBook == null || game.getGame().isGameOver()) {
+            return new BookMovesResponse(List.of());
+        }
+        return new BookMovesResponse(openingBook.moves(game.getGame()));
+    }
+
+    private AuthData authorize(String authToken) throws ResponseException {
+        AuthData auth = authDataAccess.getAuth(authToken);
+        if (auth == null) {
+            throw new ResponseException(401, "Error: unauthorized");
+        }
+        return auth;
+    }
+
     private TeamColor getPlayerColor(String username, GameData game) {
         if (username.equals(game.getWhiteUsername())) {
             return TeamColor.WHITE;
@@ -0,0 +1,99 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import exception.ResponseException;
+import java.util.concurrent.TimeUnit;
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachingAuthDataAccessTest {
+    private CountingStore store;
+    private long now;
+    private CachingAuthDataAccess cache;
+
+    @BeforeEach
+    public void setUp() {
+        store = new CountingStore();
+        cache = new CachingAuthDataAccess(store, 2, 1_000, 100, () -> now);
+    }
+
+    @Test
+    public void remembersValidTokens() throws ResponseException {
+        store.createAuth(new AuthData("alice", "token-a"));
+        assertEquals("alice", cache.getAuth("token-a").getUsername());
+        assertEquals("alice", cache.getAuth("token-a").getUsername());
+
+        assertEquals(1, store.lookups);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void remembersBadTokensBriefly() throws ResponseException {
+        assertNull(cache.getAuth("bad"));
+        assertNull(cache.getAuth("bad"));
+        assertEquals(1, store.lookups);
+        assertEquals(1, cache.getNegativeHitCount());
+
+        now += TimeUnit.MILLISECONDS.toNanos(101);
+        assertNull(cache.getAuth("bad"));
+        assertEquals(2, store.lookups);
+    }
+
+    @Test
+    public void expiresValidTokens() throws ResponseException {
+        cache.createAuth(new AuthData("alice", "token-a"));
+        assertNotNull(cache.getAuth("token-a"));
+        assertEquals(0, store.lookups);
+
+        now += TimeUnit.MILLISECONDS.toNanos(1_001);
+        assertNotNull(cache.getAuth("token-a"));
+        assertEquals(1, store.lookups);
+    }
+
+    @Test
+    public void deletingForgetsTheToken() throws ResponseException {
+        cache.createAuth(new AuthData("alice", "token-a"));
+        cache.deleteAuth("token-a");
+        assertNull(cache.getAuth("token-a"));
+
+        cache.createAuth(new AuthData("bob", "token-b"));
+        cache.clear();
+        assertNull(cache.getAuth("token-b"));
+    }
+
+    @Test
+    public void creatingReplacesAForgottenBadToken() throws ResponseException {
+        assertNull(cache.getAuth("token-a"));
+        cache.createAuth(new AuthData("alice", "token-a"));
+        assertEquals("alice", cache.getAuth("token-a").getUsername());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws ResponseException {
+        cache.createAuth(new AuthData("alice", "token-a"));
+        cache.createAuth(new AuthData("bob", "token-b"));
+        cache.getAuth("token-a");
+        cache.createAuth(new AuthData("carol", "token-c"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.getAuth("token-a");
+        assertEquals(0, store.lookups);
+        cache.getAuth("token-b");
+        assertEquals(1, store.lookups);
+    }
+
+    private static class CountingStore extends MemoryAuthDataAccess {
+        private int lookups;
+
+        @Override
+        public AuthData getAuth(String authToken) {
+            lookups++;
+            return super.getAuth(authToken);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTest {
+    private final List<FakeConnection> opened = Collections.synchronizedList(new ArrayList<>());
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reusesReturnedConnections() throws Exception {
+        pool = pool(0, 2, 1_000, 60_000, 60_000, 0);
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+        second.close();
+
+        assertEquals(1, opened.size());
+        assertEquals(2, pool.getAcquireCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::createStatement);
+    }
+
+    @Test
+    public void closingTwiceReturnsOnce() throws Exception {
+        pool = pool(0, 1, 1_000, 60_000, 60_000, 0);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        Connection again = pool.getConnection();
+        // A second stray close of the old handle must not free the connection now in use
+        conn.close();
+        assertEquals(1, pool.getActiveCount());
+        again.close();
+    }
+
+    @Test
+    public void timesOutWhenExhausted() throws Exception {
+        pool = pool(0, 1, 50, 60_000, 60_000, 0);
+        try (Connection held = pool.getConnection()) {
+            DataAccessException e = assertThrows(DataAccessException.class, () -> pool.getConnection());
+            assertTrue(e.getMessage().contains("Timed out"));
+            assertEquals(1, pool.getTimeoutCount());
+            assertNotNull(held);
+        }
+        pool.getConnection().close();
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void replacesConnectionsThatFailValidation() throws Exception {
+        pool = pool(0, 2, 1_000, 60_000, 0, 0);
+        pool.getConnection().close();
+        opened.get(0).broken.set(true);
+        pool.getConnection().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed.get());
+        assertEquals(1, pool.getEvictedCount());
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    public void rollsBackUnfinishedTransactions() throws Exception {
+        pool = pool(0, 1, 1_000, 60_000, 60_000, 0);
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+        }
+        assertTrue(opened.get(0).rolledBack.get());
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+        }
+    }
+
+    @Test
+    public void evictsIdleConnectionsDownToMinimum() throws Exception {
+        pool = pool(1, 3, 1_000, 100, 60_000, 0);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        assertEquals(3, pool.getTotalCount());
+
+        waitFor(() -> pool.getTotalCount() == 1);
+        assertTrue(pool.getEvictedCount() >= 2);
+    }
+
+    @Test
+    public void reportsLeakedConnections() throws Exception {
+        pool = pool(0, 1, 1_000, 60_000, 60_000, 100);
+        Connection leaked = pool.getConnection();
+        waitFor(() -> pool.getLeakCount() == 1);
+        leaked.close();
+    }
+
+    private ConnectionPool pool(int min, int max, long acquireTimeout, long idleTimeout,
+                                long validationInterval, long leakThreshold) {
+        return new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            opened.add(fake);
+            return fake.proxy();
+        }, new ConnectionPool.Settings(min, max, acquireTimeout, idleTimeout, validationInterval,
+                leakThreshold, "SELECT 1"));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+
+    // Just enough of a connection for the pool: closing, validation and auto-commit
+    private static class FakeConnection {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean broken = new AtomicBoolean();
+        private final AtomicBoolean rolledBack = new AtomicBoolean();
+        private boolean autoCommit = true;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed.set(true);
+                            yield null;
+                        }
+                        case "isClosed" -> closed.get();
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rolledBack.set(true);
+                            yield null;
+                        }
+                        case "createStatement" -> statement();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private Statement statement() {
+            return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "execute" -> {
+                            if (broken.get()) {
+                                throw new SQLException("Communications link failure");
+                            }
+                            yield true;
+                        }
+                        case "close" -> null;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
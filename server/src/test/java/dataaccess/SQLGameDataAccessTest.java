@@ -3,7 +3,12 @@ package dataaccess;
 import static org.junit.jupiter.api.Assertions.*;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
 import exception.ResponseException;
+import java.util.List;
 import model.GameData;
 import model.UserData;
 import org.junit.jupiter.api.BeforeEach;
@@ -78,6 +83,100 @@ public class SQLGameDataAccessTest {
         assertNull(gameDao.getGame(99999));
     }
 
+    @Test
+    public void updateInTransactionCommits() throws ResponseException {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Locked", new ChessGame()));
+        new SQLTransactionManager().inTransaction(() -> {
+            GameData game = gameDao.getGameForUpdate(created.getGameId());
+            return gameDao.updateGame(game.getGameId(),
+                    new GameData(game.getGameId(), null, null, "Renamed", game.getGame()));
+        });
+        assertEquals("Renamed", gameDao.getGame(created.getGameId()).getGameName());
+    }
+
+    @Test
+    public void failedTransactionRollsBack() throws ResponseException {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Kept", new ChessGame()));
+        assertThrows(ResponseException.class, () -> new SQLTransactionManager().inTransaction(() -> {
+            GameData game = gameDao.getGameForUpdate(created.getGameId());
+            gameDao.updateGame(game.getGameId(), new GameData(game.getGameId(), null, null, "Lost", game.getGame()));
+            throw new ResponseException(400, "Error: bad request");
+        }));
+        assertEquals("Kept", gameDao.getGame(created.getGameId()).getGameName());
+    }
+
+    @Test
+    public void movesAreReplayedOntoTheSnapshot() throws Exception {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Logged", new ChessGame()));
+        ChessGame game = created.getGame();
+        // Past the first snapshot, with moves logged after it
+        for (int ply = 0; ply < SQLGameDataAccess.SNAPSHOT_INTERVAL + 5 && !game.isGameOver(); ply++) {
+            playFirstMove(game);
+            gameDao.updateGame(created.getGameId(), created);
+            assertEquals(game.toFen(), gameDao.getGame(created.getGameId()).getGame().toFen());
+        }
+        GameData found = gameDao.getGame(created.getGameId());
+        assertEquals(game.getMoveHistory(), found.getGame().getMoveHistory());
+        assertEquals(game.toFen(), gameDao.listGames().iterator().next().getGame().toFen());
+    }
+
+    @Test
+    public void listedGamesOnlyReplayMovesAfterTheSnapshot() throws Exception {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Listed", new ChessGame()));
+        ChessGame game = created.getGame();
+        for (int ply = 0; ply < SQLGameDataAccess.SNAPSHOT_INTERVAL + 3; ply++) {
+            playFirstMove(game);
+            gameDao.updateGame(created.getGameId(), created);
+        }
+        ChessGame listed = gameDao.listGames().iterator().next().getGame();
+        assertEquals(game.toFen(), listed.toFen());
+        assertEquals(3, listed.getMoveHistory().size());
+        assertEquals(game.getMoveHistory(), gameDao.getGame(created.getGameId()).getGame().getMoveHistory());
+    }
+
+    @Test
+    public void replacedHistoryStartsTheLogOver() throws Exception {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Reset", new ChessGame()));
+        playFirstMove(created.getGame());
+        playFirstMove(created.getGame());
+        gameDao.updateGame(created.getGameId(), created);
+
+        ChessGame fresh = new ChessGame();
+        playFirstMove(fresh);
+        gameDao.updateGame(created.getGameId(), new GameData(created.getGameId(), null, null, "Reset", fresh));
+        assertEquals(fresh.toFen(), gameDao.getGame(created.getGameId()).getGame().toFen());
+    }
+
+    @Test
+    public void replacedHistoryOfTheSameLengthStartsTheLogOver() throws Exception {
+        GameData created = gameDao.createGame(new GameData(0, null, null, "Reset", new ChessGame()));
+        created.getGame().makeMove(PackedMove.toChessMove(PackedMove.parse("e2e4")));
+        gameDao.updateGame(created.getGameId(), created);
+
+        ChessGame other = new ChessGame();
+        other.makeMove(PackedMove.toChessMove(PackedMove.parse("d2d4")));
+        gameDao.updateGame(created.getGameId(), new GameData(created.getGameId(), null, null, "Reset", other));
+        assertEquals(other.toFen(), gameDao.getGame(created.getGameId()).getGame().toFen());
+    }
+
+    @Test
+    public void updateGamesWritesEveryGame() throws Exception {
+        GameData first = gameDao.createGame(new GameData(0, null, null, "First", new ChessGame()));
+        GameData second = gameDao.createGame(new GameData(0, null, null, "Second", new ChessGame()));
+        playFirstMove(first.getGame());
+        second.setWhiteUsername("alice");
+        gameDao.updateGames(List.of(first, second));
+
+        assertEquals(first.getGame().toFen(), gameDao.getGame(first.getGameId()).getGame().toFen());
+        assertEquals("alice", gameDao.getGame(second.getGameId()).getWhiteUsername());
+    }
+
+    private static void playFirstMove(ChessGame game) throws InvalidMoveException {
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, moves);
+        game.makeMove(PackedMove.toChessMove(moves.get(0)));
+    }
+
     @Test
     public void listGamesSuccess() throws ResponseException {
         gameDao.createGame(new GameData(0, null, null, "Game1", new ChessGame()));
@@ -0,0 +1,64 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StripedLockTransactionManagerTest {
+    private final StripedLockTransactionManager transactionManager = new StripedLockTransactionManager(4);
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void otherGamesRunAlongside() throws Exception {
+        CountDownLatch otherDone = new CountDownLatch(1);
+        boolean ran = transactionManager.inTransaction(1, () -> {
+            executor.submit(() -> transactionManager.inTransaction(2, () -> {
+                otherDone.countDown();
+                return null;
+            }));
+            try {
+                return otherDone.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(ran);
+    }
+
+    @Test
+    public void sameGameWaits() throws Exception {
+        CountDownLatch sameStarted = new CountDownLatch(1);
+        Future<?> same = transactionManager.inTransaction(1, () -> {
+            Future<?> submitted = executor.submit(() -> transactionManager.inTransaction(1, () -> {
+                sameStarted.countDown();
+                return null;
+            }));
+            try {
+                assertFalse(sameStarted.await(100, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            // Nested work on the game it already holds does not wait for itself
+            return transactionManager.inTransaction(1, () -> submitted);
+        });
+        same.get(5, TimeUnit.SECONDS);
+        assertEquals(0, sameStarted.getCount());
+    }
+}
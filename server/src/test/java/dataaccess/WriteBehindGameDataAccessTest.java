@@ -0,0 +1,222 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import exception.ResponseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindGameDataAccessTest {
+    private RecordingStore store;
+    private WriteBehindGameDataAccess cache;
+
+    @BeforeEach
+    public void setUp() {
+        store = new RecordingStore();
+    }
+
+    @AfterEach
+    public void tearDown() throws ResponseException {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void updatesWaitForTheFlush() throws Exception {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 100);
+        GameData created = cache.createGame(new GameData(0, "alice", null, "Game", new ChessGame()));
+        GameData game = cache.getGameForUpdate(created.getGameId());
+        game.getGame().makeMove(pawnPush());
+        cache.updateGame(game.getGameId(), game);
+
+        assertTrue(store.batches.isEmpty());
+        assertEquals(ChessGame.TeamColor.BLACK, cache.getGame(created.getGameId()).getGame().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.BLACK, cache.listGames().iterator().next().getGame().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.WHITE, store.getGame(created.getGameId()).getGame().getTeamTurn());
+
+        cache.flush();
+        assertEquals(List.of(1), store.batches);
+        assertEquals(0, cache.getDirtyCount());
+        assertEquals(ChessGame.TeamColor.BLACK, store.getGame(created.getGameId()).getGame().getTeamTurn());
+    }
+
+    @Test
+    public void gamesHandedOutAreCopies() throws ResponseException, InvalidMoveException {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 100);
+        GameData created = cache.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        cache.getGame(created.getGameId()).getGame().makeMove(pawnPush());
+
+        assertEquals(ChessGame.TeamColor.WHITE, cache.getGame(created.getGameId()).getGame().getTeamTurn());
+        assertEquals(0, cache.getDirtyCount());
+    }
+
+    @Test
+    public void thresholdFlushesInOneBatch() throws Exception {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 3, 100);
+        for (int i = 0; i < 3; i++) {
+            GameData game = cache.createGame(new GameData(0, null, null, "Game" + i, new ChessGame()));
+            game.setWhiteUsername("alice");
+            cache.updateGame(game.getGameId(), game);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.getDirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(3), store.batches);
+    }
+
+    @Test
+    public void intervalFlushesChanges() throws Exception {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                50, 100, 100);
+        GameData game = cache.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        game.setBlackUsername("bob");
+        cache.updateGame(game.getGameId(), game);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.getDirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("bob", store.getGame(game.getGameId()).getBlackUsername());
+    }
+
+    @Test
+    public void gameEndingChangeIsWrittenAtOnce() throws ResponseException {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.SYNC_GAME_END,
+                60_000, 100, 100);
+        GameData game = cache.createGame(new GameData(0, "alice", "bob", "Game", new ChessGame()));
+        game.getGame().setResigned(ChessGame.TeamColor.WHITE);
+        cache.updateGame(game.getGameId(), game);
+
+        assertEquals(List.of(1), store.batches);
+        assertTrue(store.getGame(game.getGameId()).getGame().isGameOver());
+    }
+
+    @Test
+    public void closeDrainsChanges() throws ResponseException {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 100);
+        GameData game = cache.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        game.setWhiteUsername("alice");
+        cache.updateGame(game.getGameId(), game);
+        cache.close();
+
+        assertEquals("alice", store.getGame(game.getGameId()).getWhiteUsername());
+        cache = null;
+    }
+
+    @Test
+    public void clearDropsUnwrittenChanges() throws ResponseException {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 100);
+        GameData game = cache.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        cache.updateGame(game.getGameId(), game);
+        cache.clear();
+
+        assertEquals(0, cache.getDirtyCount());
+        assertNull(cache.getGame(game.getGameId()));
+    }
+
+    @Test
+    public void storeReadDoesNotReplaceANewerChange() throws Exception {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 1);
+        GameData first = cache.createGame(new GameData(0, null, null, "First", new ChessGame()));
+        cache.createGame(new GameData(0, null, null, "Second", new ChessGame()));
+
+        // The reader clears the store's latch once it starts, so the test keeps its own references
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch mayFinish = new CountDownLatch(1);
+        store.readMayFinish = mayFinish;
+        store.readStarted = started;
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        Future<GameData> read = reader.submit(() -> cache.getGame(first.getGameId()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        cache.updateGame(first.getGameId(), new GameData(first.getGameId(), "alice", null, "First", new ChessGame()));
+        mayFinish.countDown();
+        read.get(5, TimeUnit.SECONDS);
+        reader.shutdown();
+
+        cache.flush();
+        assertEquals("alice", cache.getGame(first.getGameId()).getWhiteUsername());
+    }
+
+    @Test
+    public void changedGamesOutgrowTheBoundUntilWritten() throws ResponseException {
+        cache = new WriteBehindGameDataAccess(store, WriteBehindGameDataAccess.Durability.WRITE_BEHIND,
+                60_000, 100, 1);
+        for (int i = 0; i < 3; i++) {
+            GameData game = cache.createGame(new GameData(0, null, null, "Game" + i, new ChessGame()));
+            cache.updateGame(game.getGameId(), game);
+        }
+        assertEquals(3, cache.getCachedCount());
+
+        cache.flush();
+        assertEquals(1, cache.getCachedCount());
+    }
+
+    private static ChessMove pawnPush() {
+        return new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    }
+
+    // Copies games in and out like a database, and records the size of each batch written
+    private static class RecordingStore extends MemoryGameDataAccess {
+        private final List<Integer> batches = new ArrayList<>();
+
+        @Override
+        public GameData createGame(GameData game) {
+            return copy(super.createGame(copy(game)));
+        }
+
+        // When set, the next read waits after reading until told to finish
+        private volatile CountDownLatch readStarted;
+        private volatile CountDownLatch readMayFinish;
+
+        @Override
+        public GameData getGame(int gameID) {
+            GameData game = super.getGame(gameID);
+            CountDownLatch started = readStarted;
+            if (started != null) {
+                readStarted = null;
+                started.countDown();
+                try {
+                    readMayFinish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return game == null ? null : copy(game);
+        }
+
+        @Override
+        public synchronized void updateGames(Collection<GameData> games) throws ResponseException {
+            batches.add(games.size());
+            for (GameData game : games) {
+                updateGame(game.getGameId(), copy(game));
+            }
+        }
+
+        private static GameData copy(GameData game) {
+            return new GameData(game.getGameId(), game.getWhiteUsername(), game.getBlackUsername(),
+                    game.getGameName(), new ChessGame(game.getGame()));
+        }
+    }
+}
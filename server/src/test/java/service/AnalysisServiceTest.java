@@ -0,0 +1,154 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dataaccess.MemoryAuthDataAccess;
+import exception.ResponseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import model.AnalysisRequest;
+import model.AnalysisResult;
+import model.AuthData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AnalysisServiceTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+
+    private MemoryAuthDataAccess authDataAccess;
+    private AnalysisService analysisService;
+    private String validToken;
+
+    @BeforeEach
+    public void setUp() throws ResponseException {
+        authDataAccess = new MemoryAuthDataAccess();
+        analysisService = new AnalysisService(authDataAccess, 2, 4, 100);
+        validToken = authDataAccess.createAuth(new AuthData("alice", "valid-token")).getAuthToken();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        analysisService.shutdown();
+    }
+
+    @Test
+    public void analyzesPositionsInOrder() throws ResponseException {
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fens.add(i % 2 == 0 ? START : MATE_IN_ONE);
+        }
+        List<AnalysisResult> results = collect(analysisService.startBatch(validToken,
+                new AnalysisRequest(fens, null, 3, 0, 0)));
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < 5; i++) {
+            AnalysisResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(fens.get(i), result.getFen());
+            assertNull(result.getGame());
+            assertNotNull(result.getBestMove());
+            assertEquals(result.getBestMove(), result.getPv().get(0));
+        }
+        assertEquals("a1a8", results.get(1).getBestMove());
+        assertTrue(results.get(1).isMate());
+    }
+
+    @Test
+    public void expandsPgnIntoEveryPosition() throws ResponseException {
+        String pgn = "[Event \"One\"]\n\n1. e4 e5 2. Nf3 *\n\n[Event \"Two\"]\n\n1. d4 *\n";
+        List<AnalysisResult> results = collect(analysisService.startBatch(validToken,
+                new AnalysisRequest(null, pgn, 1, 0, 0)));
+
+        assertEquals(6, results.size());
+        assertEquals(START, results.get(0).getFen());
+        assertEquals(1, results.get(3).getGame());
+        assertEquals(3, results.get(3).getPly());
+        assertEquals(2, results.get(5).getGame());
+        assertEquals(1, results.get(5).getPly());
+        assertEquals(5, results.get(5).getIndex());
+    }
+
+    @Test
+    public void rejectsBadRequests() {
+        ResponseException unauthorized = assertThrows(ResponseException.class,
+                () -> analysisService.startBatch("bad-token", new AnalysisRequest(List.of(START), null, 1, 0, 0)));
+        assertEquals(401, unauthorized.getStatusCode());
+
+        assertStatus(400, null);
+        assertStatus(400, new AnalysisRequest(null, null, 1, 0, 0));
+        assertStatus(400, new AnalysisRequest(List.of(START), "1. e4 *", 1, 0, 0));
+        assertStatus(400, new AnalysisRequest(List.of(START, "not a fen"), null, 1, 0, 0));
+        assertStatus(400, new AnalysisRequest(null, "1. e5 *", 1, 0, 0));
+        assertStatus(400, new AnalysisRequest(List.of(START), null, -1, 0, 0));
+        assertStatus(400, new AnalysisRequest(
+                Collections.nCopies(AnalysisService.MAX_POSITIONS + 1, START), null, 1, 0, 0));
+    }
+
+    @Test
+    public void cancelledBatchStopsEarly() throws ResponseException {
+        AnalysisService.Batch batch = analysisService.startBatch(validToken,
+                new AnalysisRequest(Collections.nCopies(20, START), null, 0, 0, 5_000));
+        long start = System.currentTimeMillis();
+        batch.cancel();
+
+        assertNull(batch.next());
+        // Queued positions are dropped and running ones stopped, leaving room for other batches
+        List<AnalysisResult> results = collect(analysisService.startBatch(validToken,
+                new AnalysisRequest(List.of(START), null, 1, 0, 0)));
+        assertEquals(1, results.size());
+        assertTrue(System.currentTimeMillis() - start < 20 * 5_000 / 2);
+    }
+
+    @Test
+    public void fullQueueTurnsBatchesAway() throws ResponseException {
+        analysisService.shutdown();
+        analysisService = new AnalysisService(authDataAccess, 1, 1, 100);
+        try (AnalysisService.Batch busy = analysisService.startBatch(validToken,
+                new AnalysisRequest(Collections.nCopies(4, START), null, 0, 0, 2_000))) {
+            ResponseException e = assertThrows(ResponseException.class, () -> analysisService.startBatch(validToken,
+                    new AnalysisRequest(List.of(START), null, 1, 0, 0)));
+            assertEquals(503, e.getStatusCode());
+            assertEquals(4, busy.size());
+        }
+    }
+
+    @Test
+    public void shutDownServiceTurnsBatchesAway() {
+        analysisService.shutdown();
+        assertStatus(503, new AnalysisRequest(List.of(START), null, 1, 0, 0));
+    }
+
+    @Test
+    public void shutdownReleasesBatchesWaitingOnQueuedPositions() throws ResponseException {
+        analysisService.shutdown();
+        analysisService = new AnalysisService(authDataAccess, 1, 1, 100);
+        // One position running and one queued, so the batch has nothing left to submit
+        AnalysisService.Batch batch = analysisService.startBatch(validToken,
+                new AnalysisRequest(List.of(START, START), null, 0, 0, 200));
+        analysisService.shutdown();
+
+        ResponseException e = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            batch.next();
+            return assertThrows(ResponseException.class, batch::next);
+        });
+        assertEquals(503, e.getStatusCode());
+    }
+
+    private void assertStatus(int status, AnalysisRequest request) {
+        ResponseException e = assertThrows(ResponseException.class,
+                () -> analysisService.startBatch(validToken, request));
+        assertEquals(status, e.getStatusCode());
+    }
+
+    private static List<AnalysisResult> collect(AnalysisService.Batch batch) throws ResponseException {
+        List<AnalysisResult> results = new ArrayList<>();
+        for (AnalysisResult result = batch.next(); result != null; result = batch.next()) {
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -4,15 +4,35 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import chess.ChessGame;
 import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PolyglotKey;
+import chess.engine.BookMove;
+import chess.engine.OpeningBook;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
 import dataaccess.MemoryAuthDataAccess;
 import dataaccess.MemoryGameDataAccess;
+import dataaccess.TransactionManager;
+import dataaccess.UnitOfWork;
 import exception.ResponseException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import model.AuthData;
 import model.GameData;
 import model.JoinGameRequest;
 import model.ListGamesResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class GameServiceTest {
     private MemoryAuthDataAccess authDataAccess;
@@ -122,4 +142,146 @@ public class GameServiceTest {
                 () -> gameService.joinGame(auth2.getAuthToken(), req));
         assertEquals(403, ex.getStatusCode());
     }
+
+    @Test
+    public void threefoldRepetitionEndsGame() throws ResponseException {
+        AuthData auth2 = authDataAccess.createAuth(new AuthData("bob", "token2"));
+        GameData created = gameService.createGame(validToken, new GameData(0, null, null, "TestGame", null));
+        gameService.joinGame(validToken, new JoinGameRequest(TeamColor.WHITE, created.getGameId()));
+        gameService.joinGame(auth2.getAuthToken(), new JoinGameRequest(TeamColor.BLACK, created.getGameId()));
+
+        GameData game = created;
+        for (int i = 0; i < 2; i++) {
+            gameService.makeMove(validToken, created.getGameId(), knightMove(1, 7, 3, 6));
+            gameService.makeMove(auth2.getAuthToken(), created.getGameId(), knightMove(8, 7, 6, 6));
+            gameService.makeMove(validToken, created.getGameId(), knightMove(3, 6, 1, 7));
+            assertFalse(game.getGame().isGameOver());
+            game = gameService.makeMove(auth2.getAuthToken(), created.getGameId(), knightMove(6, 6, 8, 7));
+        }
+        assertTrue(game.getGame().isThreefoldRepetition());
+        assertTrue(game.getGame().isGameOver());
+        ResponseException ex = assertThrows(ResponseException.class,
+                () -> gameService.makeMove(validToken, created.getGameId(), knightMove(1, 7, 3, 6)));
+        assertEquals(400, ex.getStatusCode());
+    }
+
+    @Test
+    public void concurrentMovesOnOneGameTakeTurns() throws Exception {
+        AuthData auth2 = authDataAccess.createAuth(new AuthData("bob", "token2"));
+        GameData created = gameService.createGame(validToken, new GameData(0, null, null, "TestGame", null));
+        gameService.joinGame(validToken, new JoinGameRequest(TeamColor.WHITE, created.getGameId()));
+        gameService.joinGame(auth2.getAuthToken(), new JoinGameRequest(TeamColor.BLACK, created.getGameId()));
+
+        // Every thread tries white's first move; only one may see it as white's turn
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    gameService.makeMove(validToken, created.getGameId(), knightMove(1, 7, 3, 6));
+                    return true;
+                } catch (ResponseException e) {
+                    assertEquals(400, e.getStatusCode());
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int moved = 0;
+        for (Future<Boolean> result : results) {
+            moved += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, moved);
+        assertEquals(TeamColor.BLACK, gameDataAccess.getGame(created.getGameId()).getGame().getTeamTurn());
+    }
+
+    @Test
+    public void changesRunAsUnitsOfWork() throws ResponseException {
+        List<String> units = new ArrayList<>();
+        gameService = new GameService(authDataAccess, gameDataAccess, null, null, new TransactionManager() {
+            public <T> T inTransaction(UnitOfWork<T> work) throws ResponseException {
+                try {
+                    T result = work.run();
+                    units.add("commit");
+                    return result;
+                } catch (ResponseException e) {
+                    units.add("rollback");
+                    throw e;
+                }
+            }
+        });
+        GameData created = gameService.createGame(validToken, new GameData(0, null, null, "TestGame", null));
+        gameService.joinGame(validToken, new JoinGameRequest(TeamColor.WHITE, created.getGameId()));
+        gameService.makeMove(validToken, created.getGameId(), knightMove(1, 7, 3, 6));
+        assertThrows(ResponseException.class,
+                () -> gameService.makeMove(validToken, created.getGameId(), knightMove(3, 6, 1, 7)));
+        gameService.resignGame(validToken, created.getGameId());
+
+        assertEquals(List.of("commit", "commit", "rollback", "commit"), units);
+    }
+
+    @Test
+    public void bookMovesWithoutBookAreEmpty() throws ResponseException {
+        GameData created = gameService.createGame(validToken, new GameData(0, null, null, "TestGame", null));
+        assertTrue(gameService.getBookMoves(validToken, created.getGameId()).getMoves().isEmpty());
+
+        ResponseException ex = assertThrows(ResponseException.class,
+                () -> gameService.getBookMoves("bad-token", created.getGameId()));
+        assertEquals(401, ex.getStatusCode());
+        ex = assertThrows(ResponseException.class, () -> gameService.getBookMoves(validToken, 9999));
+        assertEquals(400, ex.getStatusCode());
+    }
+
+    @Test
+    public void bookMovesComeFromTheBook(@TempDir Path dir) throws IOException, ResponseException {
+        ChessGame start = new ChessGame();
+        Path file = dir.resolve("book.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            // e2e4 (from square 12, to square 28) with weight 7
+            out.writeLong(PolyglotKey.of(start));
+            out.writeShort(28 | 12 << 6);
+            out.writeShort(7);
+            out.writeInt(0);
+        }
+        gameService = new GameService(authDataAccess, gameDataAccess, new OpeningBook(file));
+        GameData created = gameService.createGame(validToken, new GameData(0, null, null, "TestGame", null));
+
+        List<BookMove> moves = gameService.getBookMoves(validToken, created.getGameId()).getMoves();
+        assertEquals(1, moves.size());
+        assertEquals(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null), moves.get(0).getMove());
+        assertEquals(7, moves.get(0).getWeight());
+    }
+
+    @Test
+    public void tablebaseDrawEndsGame(@TempDir Path dir) throws IOException, ResponseException {
+        new TablebaseGenerator(dir).generate(3);
+        gameService = new GameService(authDataAccess, gameDataAccess, null, new Tablebase(dir));
+        AuthData auth2 = authDataAccess.createAuth(new AuthData("bob", "token2"));
+
+        // A queen ending is still being played out
+        GameData won = gameService.createGame(validToken,
+                new GameData(0, null, null, "Won", ChessGame.fromFen("8/8/8/4k3/8/8/8/4K2Q w - - 0 1")));
+        gameService.joinGame(validToken, new JoinGameRequest(TeamColor.WHITE, won.getGameId()));
+        GameData game = gameService.makeMove(validToken, won.getGameId(),
+                new ChessMove(ChessPosition.of(1, 8), ChessPosition.of(2, 8), null));
+        assertFalse(game.getGame().isGameOver());
+
+        // A rook pawn with the defending king in the corner cannot be won
+        GameData drawn = gameService.createGame(validToken,
+                new GameData(0, null, null, "Drawn", ChessGame.fromFen("k7/8/8/8/8/8/P7/K7 w - - 0 1")));
+        gameService.joinGame(validToken, new JoinGameRequest(TeamColor.WHITE, drawn.getGameId()));
+        gameService.joinGame(auth2.getAuthToken(), new JoinGameRequest(TeamColor.BLACK, drawn.getGameId()));
+        game = gameService.makeMove(validToken, drawn.getGameId(),
+                new ChessMove(ChessPosition.of(2, 1), ChessPosition.of(3, 1), null));
+        assertTrue(game.getGame().isGameOver());
+    }
+
+    private static ChessMove knightMove(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
 }
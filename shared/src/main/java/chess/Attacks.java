@@ -0,0 +1,240 @@
+package chess;
+
+/**
+ * Precomputed attack sets for every piece type, indexed by square (see {@link Bitboards}).
+ * <p>
+ * Knight, king and pawn attacks are plain lookup tables. Rook and bishop rays use magic
+ * bitboards: the blockers on a square's relevant rays are multiplied by a magic number and
+ * the top bits of the product index a table holding the attack set for that blocker pattern.
+ */
+public final class Attacks {
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    // Indexed [color.ordinal()][square]
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Squares strictly between two aligned squares, and the full line through them (0 if not aligned)
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    // Fixed seed so every JVM builds identical tables
+    private static final long MAGIC_SEED = 0x2545F4914F6CDD1DL;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = stepAttacks(square, new int[][]{
+                    {2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
+            });
+            KING[square] = stepAttacks(square, new int[][]{
+                    {1, 1}, {1, 0}, {1, -1}, {0, 1}, {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}
+            });
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, 1}, {1, -1}});
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, 1}, {-1, -1}});
+        }
+        long[] seed = {MAGIC_SEED};
+        for (int square = 0; square < 64; square++) {
+            ROOK_MAGICS[square] = findMagic(square, ROOK_DIRECTIONS, seed);
+            BISHOP_MAGICS[square] = findMagic(square, BISHOP_DIRECTIONS, seed);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bitB = Bitboards.bit(b);
+                if (a == b) {
+                    continue;
+                }
+                if ((rookSlow(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = rookSlow(a, bitB) & rookSlow(b, Bitboards.bit(a));
+                    LINE[a][b] = (rookSlow(a, 0) & rookSlow(b, 0)) | Bitboards.bit(a) | bitB;
+                } else if ((bishopSlow(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = bishopSlow(a, bitB) & bishopSlow(b, Bitboards.bit(a));
+                    LINE[a][b] = (bishopSlow(a, 0) & bishopSlow(b, 0)) | Bitboards.bit(a) | bitB;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /** @return squares a knight on the given square attacks */
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /** @return squares a king on the given square attacks */
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /** @return squares a pawn of the given color on the given square attacks (captures only) */
+    public static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /** @return squares a rook on the given square attacks, stopping at (and including) blockers */
+    public static long rook(int square, long occupancy) {
+        return ROOK_MAGICS[square].lookup(occupancy);
+    }
+
+    /** @return squares a bishop on the given square attacks, stopping at (and including) blockers */
+    public static long bishop(int square, long occupancy) {
+        return BISHOP_MAGICS[square].lookup(occupancy);
+    }
+
+    /** @return squares a queen on the given square attacks, stopping at (and including) blockers */
+    public static long queen(int square, long occupancy) {
+        return rook(square, occupancy) | bishop(square, occupancy);
+    }
+
+    /** @return squares strictly between two squares on a shared rank, file or diagonal, else 0 */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /** @return every square of the rank, file or diagonal through both squares, else 0 */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Attack set of a non-pawn piece type.
+     *
+     * @throws IllegalArgumentException for pawns, whose attacks depend on color
+     */
+    public static long of(ChessPiece.PieceType type, int square, long occupancy) {
+        return switch (type) {
+            case KNIGHT -> knight(square);
+            case KING -> king(square);
+            case BISHOP -> bishop(square, occupancy);
+            case ROOK -> rook(square, occupancy);
+            case QUEEN -> queen(square, occupancy);
+            case PAWN -> throw new IllegalArgumentException("pawn attacks depend on color");
+        };
+    }
+
+    // -----------------------
+    // Table construction
+    // -----------------------
+
+    // One square's slider lookup: mask of relevant blockers, magic multiplier and attack table
+    private record Magic(long mask, long magic, int shift, long[] attacks) {
+        long lookup(long occupancy) {
+            return attacks[(int) (((occupancy & mask) * magic) >>> shift)];
+        }
+    }
+
+    private static long stepAttacks(int square, int[][] deltas) {
+        int row = Bitboards.row(square);
+        int col = Bitboards.column(square);
+        long attacks = 0;
+        for (int[] d : deltas) {
+            int r = row + d[0];
+            int c = col + d[1];
+            if (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
+                attacks |= Bitboards.bit(Bitboards.square(r, c));
+            }
+        }
+        return attacks;
+    }
+
+    // Walks each ray until it leaves the board or hits a blocker (the blocker square is included)
+    static long slidingAttacks(int square, long occupancy, int[][] directions) {
+        int row = Bitboards.row(square);
+        int col = Bitboards.column(square);
+        long attacks = 0;
+        for (int[] d : directions) {
+            int r = row + d[0];
+            int c = col + d[1];
+            while (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
+                long bit = Bitboards.bit(Bitboards.square(r, c));
+                attacks |= bit;
+                if ((occupancy & bit) != 0) {
+                    break;
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    static long rookSlow(int square, long occupancy) {
+        return slidingAttacks(square, occupancy, ROOK_DIRECTIONS);
+    }
+
+    static long bishopSlow(int square, long occupancy) {
+        return slidingAttacks(square, occupancy, BISHOP_DIRECTIONS);
+    }
+
+    // Squares whose occupancy can change the attack set: each ray without its final edge square
+    private static long relevantMask(int square, int[][] directions) {
+        int row = Bitboards.row(square);
+        int col = Bitboards.column(square);
+        long mask = 0;
+        for (int[] d : directions) {
+            int r = row + d[0];
+            int c = col + d[1];
+            while (r + d[0] >= 1 && r + d[0] <= 8 && c + d[1] >= 1 && c + d[1] <= 8) {
+                mask |= Bitboards.bit(Bitboards.square(r, c));
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static Magic findMagic(int square, int[][] directions, long[] seed) {
+        long mask = relevantMask(square, directions);
+        int bits = Bitboards.count(mask);
+        int size = 1 << bits;
+
+        // Enumerate every blocker subset of the mask (carry-rippler) with its true attack set
+        long[] blockers = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            blockers[i] = subset;
+            attacks[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        for (int attempt = 1; ; attempt++) {
+            long magic = nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean ok = true;
+            for (int i = 0; i < size && ok; i++) {
+                int index = (int) ((blockers[i] * magic) >>> (64 - bits));
+                if (epoch[index] != attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    ok = false;
+                }
+            }
+            if (ok) {
+                return new Magic(mask, magic, 64 - bits, table);
+            }
+        }
+    }
+
+    // xorshift64*
+    private static long nextRandom(long[] seed) {
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
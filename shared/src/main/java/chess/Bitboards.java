@@ -0,0 +1,85 @@
+package chess;
+
+/**
+ * Helpers for the 64-bit board sets used by {@link ChessBoard}.
+ * <p>
+ * Squares are numbered 0..63 with a1 = 0, h1 = 7 and h8 = 63, so bit
+ * {@code (row-1) * 8 + (col-1)} of a bitboard stands for {@code ChessPosition(row, col)}.
+ */
+public final class Bitboards {
+
+    public static final long EMPTY = 0L;
+    public static final long ALL = ~0L;
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    // a1, c1, ..., b2, d2, ...
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    private Bitboards() {
+    }
+
+    /** @return the square index for a 1-based row and column */
+    public static int square(int row, int col) {
+        return ((row - 1) << 3) | (col - 1);
+    }
+
+    /** @return the square index of the given position */
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /** @return the 1-based row of a square index */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /** @return the 1-based column of a square index */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /** @return the shared position for a square index */
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    /** @return a bitboard with only the given square set */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /** @return the lowest set square of a non-empty bitboard */
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /** @return the bitboard with its lowest set square cleared */
+    public static long dropFirst(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    /** @return the number of set squares */
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    /** @return the bitboard slot (0..11) for a colored piece type */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /** Renders a bitboard rank 8 first, for debugging. */
+    public static String toString(long bitboard) {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            for (int col = 1; col <= 8; col++) {
+                sb.append((bitboard & bit(square(row, col))) != 0 ? '1' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
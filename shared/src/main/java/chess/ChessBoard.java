@@ -13,6 +13,18 @@ public class ChessBoard {
     // Board indexed as [row-1][col-1]
     private final ChessPiece[][] squares = new ChessPiece[8][8];
 
+    // Bitboard view of the same pieces: one set per color/piece type (see Bitboards.pieceIndex)
+    // plus one occupancy set per color. Transient and built lazily, so a board read back by
+    // Gson (which only restores squares) indexes itself on first use.
+    private transient long[] pieceSets;
+    private transient long[] colorSets;
+    // Zobrist key of the pieces (see Zobrist.piece), kept in step with pieceSets
+    private transient long pieceKey;
+    // Sums of PieceSquareTables values and phase weights over the pieces, kept in step the same way
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+
     // Default constructor
     // Board starts empty (all null squares)
     public ChessBoard() {
@@ -30,6 +42,14 @@ public class ChessBoard {
         for (int r = 0; r < 8; r++) {
             System.arraycopy(other.squares[r], 0, this.squares[r], 0, 8);
         }
+        if (other.pieceSets != null) {
+            this.pieceSets = other.pieceSets.clone();
+            this.colorSets = other.colorSets.clone();
+            this.pieceKey = other.pieceKey;
+            this.midgameScore = other.midgameScore;
+            this.endgameScore = other.endgameScore;
+            this.phase = other.phase;
+        }
     }
 
     /**
@@ -41,20 +61,9 @@ public class ChessBoard {
             return null;
         }
 
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = squares[row - 1][col - 1];
-                if (piece == null) {
-                    continue;
-                }
-
-                if (piece.getTeamColor() == target.getTeamColor()
-                        && piece.getPieceType() == target.getPieceType()) {
-                    return new ChessPosition(row, col);
-                }
-            }
-        }
-        return null;
+        // Lowest set bit is the first match in row-major order
+        long matches = getBitboard(target.getTeamColor(), target.getPieceType());
+        return matches == 0 ? null : Bitboards.position(Bitboards.first(matches));
     }
 
     /**
@@ -77,7 +86,7 @@ public class ChessBoard {
 
         // Handle promotion (if present)
         if (move.getPromotionPiece() != null && moving.getPieceType() == ChessPiece.PieceType.PAWN) {
-            moving = new ChessPiece(moving.getTeamColor(), move.getPromotionPiece());
+            moving = ChessPiece.of(moving.getTeamColor(), move.getPromotionPiece());
         }
 
         addPiece(end, moving);
@@ -95,8 +104,7 @@ public class ChessBoard {
             throw new IllegalArgumentException("position cannot be null");
         }
 
-        // Convert 1-based row/col into 0-based array index and store the piece
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        setPiece(Bitboards.square(position), piece);
     }
 
     /**
@@ -115,6 +123,114 @@ public class ChessBoard {
         return squares[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    /**
+     * Gets the piece on a square index (a1 = 0 ... h8 = 63)
+     *
+     * @return the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return the set of squares holding the given color and piece type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceSets()[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return the set of squares occupied by the given color
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        pieceSets();
+        return colorSets[color.ordinal()];
+    }
+
+    /**
+     * @return the set of all occupied squares
+     */
+    public long getOccupancy() {
+        pieceSets();
+        return colorSets[0] | colorSets[1];
+    }
+
+    /**
+     * @return the square index of the given color's king, or -1 if it has none
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long king = getBitboard(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Bitboards.first(king);
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board, updated as pieces move
+     */
+    public long getPieceKey() {
+        pieceSets();
+        return pieceKey;
+    }
+
+    /**
+     * @return the sum of {@link PieceSquareTables#midgame} over the pieces, updated as pieces move
+     */
+    public int getMidgameScore() {
+        pieceSets();
+        return midgameScore;
+    }
+
+    /**
+     * @return the sum of {@link PieceSquareTables#endgame} over the pieces, updated as pieces move
+     */
+    public int getEndgameScore() {
+        pieceSets();
+        return endgameScore;
+    }
+
+    /**
+     * @return the sum of {@link PieceSquareTables#phase} over the pieces, updated as pieces move
+     */
+    public int getPhase() {
+        pieceSets();
+        return phase;
+    }
+
+    /**
+     * Determines if any piece of the given color attacks a square
+     *
+     * @param square the square index to test
+     * @param by     the attacking color
+     * @return True if a piece of that color could capture on the square
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor by) {
+        return attackersOf(square, by, getOccupancy()) != 0;
+    }
+
+    /**
+     * Finds the pieces of one color that attack a square, radiating out from the square with
+     * the attack tables instead of generating moves for every enemy piece.
+     *
+     * @param square    the square index being attacked
+     * @param by        the attacking color
+     * @param occupancy the blockers to assume for sliding pieces, usually
+     *                  {@link #getOccupancy()}; callers may remove a piece that is moving away
+     * @return the set of attacking squares
+     */
+    public long attackersOf(int square, ChessGame.TeamColor by, long occupancy) {
+        long[] pieces = pieceSets();
+        int base = Bitboards.pieceIndex(by, ChessPiece.PieceType.KING);
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        ChessGame.TeamColor defender = by == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        // A pawn of `by` attacks this square from wherever a defender's pawn here would attack
+        return (Attacks.pawn(defender, square) & pieces[base + ChessPiece.PieceType.PAWN.ordinal()])
+                | (Attacks.knight(square) & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (Attacks.king(square) & pieces[base])
+                | (Attacks.bishop(square, occupancy) & (pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens))
+                | (Attacks.rook(square, occupancy) & (pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens));
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
@@ -136,30 +252,148 @@ public class ChessBoard {
     // Helpers (added)
     // -----------------------
 
+    // Stores a piece (or null) on a square index, keeping the bitboards in step with the grid
+    void setPiece(int square, ChessPiece piece) {
+        ChessPiece previous = squares[square >>> 3][square & 7];
+        squares[square >>> 3][square & 7] = piece;
+        if (pieceSets == null) {
+            return;
+        }
+        long bit = Bitboards.bit(square);
+        if (previous != null) {
+            pieceSets[previous.index()] &= ~bit;
+            colorSets[previous.getTeamColor().ordinal()] &= ~bit;
+            pieceKey ^= Zobrist.piece(previous.index(), square);
+            midgameScore -= PieceSquareTables.midgame(previous.index(), square);
+            endgameScore -= PieceSquareTables.endgame(previous.index(), square);
+            phase -= PieceSquareTables.phase(previous.index());
+        }
+        if (piece != null) {
+            pieceSets[piece.index()] |= bit;
+            colorSets[piece.getTeamColor().ordinal()] |= bit;
+            pieceKey ^= Zobrist.piece(piece.index(), square);
+            midgameScore += PieceSquareTables.midgame(piece.index(), square);
+            endgameScore += PieceSquareTables.endgame(piece.index(), square);
+            phase += PieceSquareTables.phase(piece.index());
+        }
+    }
+
+    // Returns the per-piece bitboards, building them from the grid the first time they are needed.
+    // Pieces Gson created are swapped for the shared instances on the way.
+    private long[] pieceSets() {
+        if (pieceSets == null) {
+            long[] pieces = new long[12];
+            long[] colors = new long[2];
+            long key = 0;
+            int midgame = 0;
+            int endgame = 0;
+            int weight = 0;
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = getPiece(square);
+                if (piece != null) {
+                    piece = ChessPiece.of(piece.getTeamColor(), piece.getPieceType());
+                    squares[square >>> 3][square & 7] = piece;
+                    pieces[piece.index()] |= Bitboards.bit(square);
+                    colors[piece.getTeamColor().ordinal()] |= Bitboards.bit(square);
+                    key ^= Zobrist.piece(piece.index(), square);
+                    midgame += PieceSquareTables.midgame(piece.index(), square);
+                    endgame += PieceSquareTables.endgame(piece.index(), square);
+                    weight += PieceSquareTables.phase(piece.index());
+                }
+            }
+            pieceKey = key;
+            midgameScore = midgame;
+            endgameScore = endgame;
+            phase = weight;
+            colorSets = colors;
+            pieceSets = pieces;
+        }
+        return pieceSets;
+    }
+
+    // FEN piece placement, rank 8 first, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"
+    String toFenPlacement() {
+        StringBuilder fen = new StringBuilder(71);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = squares[row - 1][col - 1];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(piece.fenLetter());
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        return fen.toString();
+    }
+
+    // Board for a FEN piece placement; throws IllegalArgumentException if it is malformed
+    static ChessBoard fromFenPlacement(String placement) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/' && col == 9 && row > 1) {
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8' && col + (c - '0') <= 9) {
+                col += c - '0';
+            } else if (col <= 8 && ChessPiece.fromFenLetter(c) != null) {
+                board.squares[row - 1][col++ - 1] = ChessPiece.fromFenLetter(c);
+            } else {
+                throw new IllegalArgumentException("invalid FEN placement: " + placement);
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw new IllegalArgumentException("invalid FEN placement: " + placement);
+        }
+        return board;
+    }
+
     // Clears the board by setting every square to null
     private void clear() {
         for (int r = 0; r < 8; r++) {
             Arrays.fill(squares[r], null);
         }
+        if (pieceSets != null) {
+            Arrays.fill(pieceSets, 0L);
+            Arrays.fill(colorSets, 0L);
+            pieceKey = 0;
+            midgameScore = 0;
+            endgameScore = 0;
+            phase = 0;
+        }
     }
 
     // Places 8 pawns across the given row for the given color
     private void placePawns(int row, ChessGame.TeamColor color) {
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(row, col), new ChessPiece(color, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(row, col), ChessPiece.of(color, ChessPiece.PieceType.PAWN));
         }
     }
 
     // Places the back rank (rook, knight, bishop, queen, king, bishop, knight, rook) for the given color
     private void placeBackRank(int row, ChessGame.TeamColor color) {
-        addPiece(new ChessPosition(row, 1), new ChessPiece(color, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(row, 2), new ChessPiece(color, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(row, 3), new ChessPiece(color, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(row, 4), new ChessPiece(color, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(row, 5), new ChessPiece(color, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(row, 6), new ChessPiece(color, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(row, 7), new ChessPiece(color, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(row, 8), new ChessPiece(color, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(row, 1), ChessPiece.of(color, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(row, 2), ChessPiece.of(color, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(row, 3), ChessPiece.of(color, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(row, 4), ChessPiece.of(color, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(row, 5), ChessPiece.of(color, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(row, 6), ChessPiece.of(color, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(row, 7), ChessPiece.of(color, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(row, 8), ChessPiece.of(color, ChessPiece.PieceType.ROOK));
     }
 
     @Override
@@ -168,13 +402,13 @@ public class ChessBoard {
             return false;
         }
 
-        // Compare the 2D piece grid
-        return Arrays.deepEquals(this.squares, other.squares);
+        // Different keys rule out a match at once; equal keys are confirmed by the twelve bitboards
+        return this.getPieceKey() == other.getPieceKey() && Arrays.equals(this.pieceSets, other.pieceSets);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(getPieceKey());
     }
 
     @Override
@@ -1,7 +1,9 @@
 package chess;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -18,6 +20,37 @@ public class ChessGame {
     private boolean whiteKingMoved, whiteKingRookMoved, whiteQueenRookMoved;
     private boolean blackKingMoved, blackKingRookMoved, blackQueenRookMoved;
 
+    // Plies since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock;
+    // Starts at 1 and goes up after each black move, as in FEN
+    private int fullmoveNumber = 1;
+    // Position keys since the last capture or pawn move, oldest first, ending with the current
+    // position; only positions inside the halfmove clock window can repeat. Null until first needed.
+    private long[] positionHistory;
+    private int historySize;
+    // Every move played since startFen, as flag-free PackedMove ints; startFen is null until the
+    // first move, when it records the position the log replays from
+    private int[] moveLog;
+    private int moveCount;
+    private String startFen;
+
+    // Undo records for doMove, one packed long per move (see UNDO_* below)
+    private transient long[] undoStack;
+    private transient int undoDepth;
+
+    // Undo record layout: from | to | moved piece | captured piece + 1 | capture square
+    // | previous en-passant square + 1 | previous castling flags | previous halfmove clock
+    private static final int UNDO_TO = 6;
+    private static final int UNDO_MOVED = 12;
+    private static final int UNDO_CAPTURED = 16;
+    private static final int UNDO_CAPTURE_SQUARE = 20;
+    private static final int UNDO_EN_PASSANT = 26;
+    private static final int UNDO_CASTLING = 33;
+    private static final int UNDO_HALFMOVE = 39;
+
+    // FEN castling letters, indexed by castlingRights() bit
+    private static final String CASTLING_LETTERS = "KQkq";
+
     public ChessGame() {
         this.teamTurn = TeamColor.WHITE;
         this.board = new ChessBoard();
@@ -41,25 +74,38 @@ public class ChessGame {
         this.blackKingMoved = this.blackKingRookMoved = this.blackQueenRookMoved = false;
     }
 
-    private ChessGame(ChessGame other) {
+    /**
+     * Creates an independent copy of a game, including its castling rights, clocks, repetition
+     * history and move log. The copy's undo stack starts empty.
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
         this.board = new ChessBoard(other.board);
         this.teamTurn = other.teamTurn;
         this.resigned = other.resigned;
         this.gameOver = other.gameOver;
         this.enPassantTarget = other.enPassantTarget;
-        this.whiteKingMoved = other.whiteKingMoved;
-        this.whiteKingRookMoved = other.whiteKingRookMoved;
-        this.whiteQueenRookMoved = other.whiteQueenRookMoved;
-        this.blackKingMoved = other.blackKingMoved;
-        this.blackKingRookMoved = other.blackKingRookMoved;
-        this.blackQueenRookMoved = other.blackQueenRookMoved;
+        setCastlingFlags(other.castlingFlags());
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        if (other.positionHistory != null) {
+            this.positionHistory = other.positionHistory.clone();
+            this.historySize = other.historySize;
+        }
+        if (other.moveLog != null) {
+            this.moveLog = other.moveLog.clone();
+            this.moveCount = other.moveCount;
+        }
+        this.startFen = other.startFen;
     }
 
     public TeamColor getResigned() { return resigned; }
 
     public void setResigned(TeamColor resigned) { this.resigned = resigned; }
 
-    public boolean isGameOver() { return gameOver || resigned != null; }
+    /** @return True if the game was ended, resigned, or has reached a drawn position */
+    public boolean isGameOver() { return gameOver || resigned != null || isDraw(); }
 
     public void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
 
@@ -71,7 +117,10 @@ public class ChessGame {
      *
      * @param team the team whose turn it is
      */
-    public void setTeamTurn(TeamColor team) { teamTurn = team; }
+    public void setTeamTurn(TeamColor team) {
+        teamTurn = team;
+        resetHistory();
+    }
 
     /** Enum identifying the 2 possible teams in a chess game */
     public enum TeamColor { WHITE, BLACK }
@@ -104,19 +153,9 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> baseMoves = piece.pieceMoves(board, startPosition);
-        HashSet<ChessMove> candidates = new HashSet<>(baseMoves);
-        addCastlingCandidates(piece, startPosition, candidates);
-        addEnPassantCandidates(piece, startPosition, candidates);
-        HashSet<ChessMove> safeMoves = new HashSet<>();
-        for (ChessMove move : candidates) {
-            ChessGame sim = new ChessGame(this);
-            sim.forceApplyMove(move);
-            if (!sim.isInCheck(piece.getTeamColor())) {
-                safeMoves.add(move);
-            }
-        }
-        return safeMoves;
+        List<ChessMove> moves = new ArrayList<>();
+        MoveGenerator.legalMoves(this, piece.getTeamColor(), Bitboards.bit(Bitboards.square(startPosition)), moves);
+        return moves;
     }
 
     /**
@@ -144,8 +183,79 @@ public class ChessGame {
         if (legal == null || !legal.contains(move)) {
             throw new InvalidMoveException("This piece cannot make this move.");
         }
-        forceApplyMove(move);
-        teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        applyMove(Bitboards.square(start), Bitboards.square(move.getEndPosition()), move.getPromotionPiece());
+        trimHistory();
+    }
+
+    /**
+     * Plays a move without checking that it is legal and records how to take it back.
+     * Handles captures, en passant, castling and promotion, and passes the turn.
+     * Every call must be paired with a later {@link #undoMove()}.
+     *
+     * @param move the move to play; its start square must hold a piece
+     */
+    public void doMove(ChessMove move) {
+        pushUndo(applyMove(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece()));
+    }
+
+    /**
+     * Plays a {@link PackedMove} the same way as {@link #doMove(ChessMove)}, without creating
+     * any move or position objects. Flags on the move are ignored.
+     *
+     * @param move the packed move to play; its start square must hold a piece
+     */
+    public void doMove(int move) {
+        pushUndo(applyMove(PackedMove.from(move), PackedMove.to(move), PackedMove.promotion(move)));
+    }
+
+    private void pushUndo(long undo) {
+        if (undoStack == null) {
+            undoStack = new long[32];
+        } else if (undoDepth == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoDepth * 2);
+        }
+        undoStack[undoDepth++] = undo;
+    }
+
+    /**
+     * Takes back the most recent {@code doMove}, restoring the board, turn,
+     * castling rights and en-passant square exactly.
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void undoMove() {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("no move to undo");
+        }
+        long undo = undoStack[--undoDepth];
+        int from = (int) (undo & 63);
+        int to = (int) ((undo >>> UNDO_TO) & 63);
+        ChessPiece moved = ChessPiece.fromIndex((int) ((undo >>> UNDO_MOVED) & 15));
+        int captured = (int) ((undo >>> UNDO_CAPTURED) & 15);
+        int enPassant = (int) ((undo >>> UNDO_EN_PASSANT) & 127);
+
+        board.setPiece(to, null);
+        board.setPiece(from, moved);
+        if (captured != 0) {
+            board.setPiece((int) ((undo >>> UNDO_CAPTURE_SQUARE) & 63), ChessPiece.fromIndex(captured - 1));
+        }
+        if (moved.getPieceType() == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            // Put the castled rook back in its corner
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            board.setPiece(rookFrom, board.getPiece(rookTo));
+            board.setPiece(rookTo, null);
+        }
+        enPassantTarget = enPassant == 0 ? null : Bitboards.position(enPassant - 1);
+        setCastlingFlags((int) ((undo >>> UNDO_CASTLING) & 63));
+        halfmoveClock = (int) (undo >>> UNDO_HALFMOVE);
+        teamTurn = opponent(teamTurn);
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        historySize--;
+        moveCount--;
     }
 
     /**
@@ -155,29 +265,8 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPiece king = new ChessPiece(teamColor, ChessPiece.PieceType.KING);
-        ChessPosition kingPosition = board.findPiece(king);
-        if (kingPosition == null) {
-            return false;
-        }
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece == null) {
-                    continue;
-                }
-                if (piece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                for (ChessMove move : piece.pieceMoves(board, position)) {
-                    if (kingPosition.equals(move.getEndPosition())) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        int kingSquare = board.getKingSquare(teamColor);
+        return kingSquare >= 0 && board.isSquareAttacked(kingSquare, opponent(teamColor));
     }
 
     /**
@@ -210,25 +299,212 @@ public class ChessGame {
         return !hasAnyLegalMove(teamColor);
     }
 
-    /** Returns true if the given team has at least one legal move available. */
-    private boolean hasAnyLegalMove(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece == null) {
-                    continue;
-                }
-                if (piece.getTeamColor() != teamColor) {
-                    continue;
-                }
-                Collection<ChessMove> moves = validMoves(position);
-                if (moves != null && !moves.isEmpty()) {
-                    return true;
+    /**
+     * Determines if the given team has at least one legal move. A team without one is either
+     * checkmated or stalemated, so this is the single-pass game-over test after a move.
+     *
+     * @param teamColor which team to check
+     * @return True if the team can move
+     */
+    public boolean hasAnyLegalMove(TeamColor teamColor) {
+        return MoveGenerator.hasLegalMove(this, teamColor);
+    }
+
+    /**
+     * Returns a 64-bit Zobrist key for the position: pieces, side to move, castling rights and
+     * the en-passant file. Equal positions have equal keys, so the key identifies a position
+     * for repetition checks and caches. The piece part is updated as moves are played, which
+     * makes this constant time.
+     *
+     * @return the position key
+     */
+    public long positionKey() {
+        long key = board.getPieceKey() ^ Zobrist.castling(castlingRights());
+        if (teamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        // The en-passant file only counts when a pawn could actually take there
+        int enPassant = getEnPassantSquare();
+        if (enPassant >= 0
+                && (Attacks.pawn(opponent(teamTurn), enPassant)
+                & board.getBitboard(teamTurn, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassantFile(enPassant & 7);
+        }
+        return key;
+    }
+
+    /**
+     * @return the number of plies since the last capture or pawn move
+     */
+    public int getHalfmoveClock() { return halfmoveClock; }
+
+    /**
+     * @return every move played in this game, oldest first, replayable from {@link #getStartFen()}
+     */
+    public List<ChessMove> getMoveHistory() {
+        List<ChessMove> moves = new ArrayList<>(moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            moves.add(PackedMove.toChessMove(moveLog[i]));
+        }
+        return moves;
+    }
+
+    /**
+     * @return the FEN of the position the move history starts from; the current position if
+     * no move has been played
+     */
+    public String getStartFen() {
+        return moveCount == 0 || startFen == null ? toFen() : startFen;
+    }
+
+    /**
+     * Attaches the moves that led to the current position, for a game restored from a snapshot
+     * kept without them. The moves are neither played nor checked against the position.
+     *
+     * @param startFen the position the moves were played from
+     * @param moves    the moves as {@link PackedMove} ints, oldest first
+     */
+    public void setMoveHistory(String startFen, int[] moves) {
+        setMoveLog(startFen, moves);
+    }
+
+    /**
+     * @return the move number, starting at 1 and increasing after each black move
+     */
+    public int getFullmoveNumber() { return fullmoveNumber; }
+
+    /**
+     * Determines if the current position has now occurred three times with the same side to
+     * move, castling rights and en-passant options. Only positions since the last capture or
+     * pawn move can match, and the fifty-move rule caps that window, so this is constant time.
+     *
+     * @return True if the position has been repeated three times
+     */
+    public boolean isThreefoldRepetition() {
+        return hasOccurred(3);
+    }
+
+    /**
+     * @return True if the current position has occurred at least once before. Not a draw by
+     * the rules, but a search can score it as one since the same moves could repeat it again.
+     */
+    public boolean isRepetition() {
+        return hasOccurred(2);
+    }
+
+    /**
+     * @return True if fifty moves by each side have passed without a capture or pawn move
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determines if neither side has the material left to deliver checkmate: bare kings, a
+     * single minor piece, or only bishops that all stand on squares of one color.
+     *
+     * @return True if the position is a dead draw
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0;
+        long knights = 0;
+        long bishops = 0;
+        for (TeamColor color : TeamColor.values()) {
+            heavy |= board.getBitboard(color, ChessPiece.PieceType.PAWN)
+                    | board.getBitboard(color, ChessPiece.PieceType.ROOK)
+                    | board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+            knights |= board.getBitboard(color, ChessPiece.PieceType.KNIGHT);
+            bishops |= board.getBitboard(color, ChessPiece.PieceType.BISHOP);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Bitboards.count(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0
+                && ((bishops & Bitboards.DARK_SQUARES) == 0 || (bishops & ~Bitboards.DARK_SQUARES) == 0);
+    }
+
+    /**
+     * @return True if the game is drawn by repetition, the fifty-move rule or insufficient material
+     */
+    public boolean isDraw() {
+        return isThreefoldRepetition() || isFiftyMoveRule() || isInsufficientMaterial();
+    }
+
+    /**
+     * Describes the position in Forsyth-Edwards Notation: placement, side to move, castling
+     * rights, en-passant target, halfmove clock and move number.
+     *
+     * @return the FEN string, e.g. {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90).append(board.toFenPlacement());
+        fen.append(teamTurn == TeamColor.WHITE ? " w " : " b ");
+        int rights = castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                fen.append(CASTLING_LETTERS.charAt(i));
+            }
+        }
+        int enPassant = getEnPassantSquare();
+        fen.append(' ').append(enPassant < 0 ? "-" : PackedMove.squareName(enPassant));
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+
+    /**
+     * Sets up a game from Forsyth-Edwards Notation. The halfmove clock and move number may be
+     * left off, in which case they default to 0 and 1.
+     *
+     * @param fen the position to load
+     * @return a new game at that position
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame fromFen(String fen) {
+        String[] fields = fen == null ? new String[0] : fen.trim().split("\\s+");
+        if (fields.length < 4 || fields.length > 6) {
+            throw new IllegalArgumentException("invalid FEN: " + fen);
+        }
+        ChessBoard board = ChessBoard.fromFenPlacement(fields[0]);
+
+        TeamColor turn = switch (fields[1]) {
+            case "w" -> TeamColor.WHITE;
+            case "b" -> TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("invalid FEN side to move: " + fields[1]);
+        };
+        ChessGame game = new ChessGame(board, turn);
+
+        int rights = 0;
+        if (!fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                int bit = CASTLING_LETTERS.indexOf(c);
+                if (bit < 0) {
+                    throw new IllegalArgumentException("invalid FEN castling rights: " + fields[2]);
                 }
+                rights |= 1 << bit;
             }
         }
-        return false;
+        game.setCastlingRights(rights);
+
+        int enPassant = -1;
+        if (!fields[3].equals("-")) {
+            enPassant = parseSquare(fields[3]);
+            if (enPassant < 0 || Bitboards.row(enPassant) != (turn == TeamColor.WHITE ? 6 : 3)) {
+                throw new IllegalArgumentException("invalid FEN en-passant square: " + fields[3]);
+            }
+        }
+        try {
+            game.setState(enPassant,
+                    fields.length > 4 ? Integer.parseInt(fields[4]) : 0,
+                    fields.length > 5 ? Integer.parseInt(fields[5]) : 1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid FEN move counters: " + fen);
+        }
+        return game;
     }
 
     /**
@@ -236,7 +512,11 @@ public class ChessGame {
      *
      * @param board the new board to use
      */
-    public void setBoard(ChessBoard board) { this.board = board; }
+    public void setBoard(ChessBoard board) {
+        this.board = board;
+        this.halfmoveClock = 0;
+        resetHistory();
+    }
 
     /**
      * Gets the current chessboard
@@ -245,194 +525,280 @@ public class ChessGame {
      */
     public ChessBoard getBoard() { return this.board; }
 
-    private void addCastlingCandidates(ChessPiece piece, ChessPosition start, HashSet<ChessMove> out) {
-        if (piece.getPieceType() != ChessPiece.PieceType.KING) {
-            return;
-        }
-        TeamColor color = piece.getTeamColor();
+    // True if the team still has the right to castle on the given side, with the king on its home
+    // square and the rook in its corner; a board set up by hand may have neither where its flags say.
+    // Whether the path is clear and safe is left to the move generator.
+    boolean canCastle(TeamColor color, boolean kingSide) {
         int homeRow = (color == TeamColor.WHITE) ? 1 : 8;
-        if (start.getRow() != homeRow || start.getColumn() != 5) {
-            return;
-        }
-        if (isInCheck(color)) {
-            return;
-        }
-        if (hasKingMoved(color)) {
-            return;
-        }
-        if (!hasKingRookMoved(color) && rookPresent(color, homeRow, 8)
-                && board.getPiece(new ChessPosition(homeRow, 6)) == null
-                && board.getPiece(new ChessPosition(homeRow, 7)) == null
-                && kingStepSafe(color, start, new ChessPosition(homeRow, 6))
-                && kingStepSafe(color, start, new ChessPosition(homeRow, 7))) {
-            out.add(new ChessMove(start, new ChessPosition(homeRow, 7), null));
-        }
-        if (!hasQueenRookMoved(color) && rookPresent(color, homeRow, 1)
-                && board.getPiece(new ChessPosition(homeRow, 2)) == null
-                && board.getPiece(new ChessPosition(homeRow, 3)) == null
-                && board.getPiece(new ChessPosition(homeRow, 4)) == null
-                && kingStepSafe(color, start, new ChessPosition(homeRow, 4))
-                && kingStepSafe(color, start, new ChessPosition(homeRow, 3))) {
-            out.add(new ChessMove(start, new ChessPosition(homeRow, 3), null));
+        if (hasKingMoved(color) || !piecePresent(color, ChessPiece.PieceType.KING, homeRow, 5)) {
+            return false;
         }
+        return kingSide
+                ? !hasKingRookMoved(color) && piecePresent(color, ChessPiece.PieceType.ROOK, homeRow, 8)
+                : !hasQueenRookMoved(color) && piecePresent(color, ChessPiece.PieceType.ROOK, homeRow, 1);
+    }
+
+    // True if the game was explicitly ended with setGameOver, as opposed to drawn by position
+    boolean hasGameOverFlag() {
+        return gameOver;
+    }
+
+    /**
+     * @return True if either side still has the right to castle
+     */
+    public boolean hasCastlingRights() {
+        return castlingRights() != 0;
     }
 
-    private boolean kingStepSafe(TeamColor color, ChessPosition from, ChessPosition to) {
-        ChessGame sim = new ChessGame(this);
-        ChessPiece king = sim.board.getPiece(from);
-        sim.board.addPiece(to, king);
-        sim.board.addPiece(from, null);
-        return !sim.isInCheck(color);
+    // Castling rights still held: bit 0 white king side, 1 white queen side, 2 black king side, 3 black queen side
+    int castlingRights() {
+        return (canCastle(TeamColor.WHITE, true) ? 1 : 0)
+                | (canCastle(TeamColor.WHITE, false) ? 2 : 0)
+                | (canCastle(TeamColor.BLACK, true) ? 4 : 0)
+                | (canCastle(TeamColor.BLACK, false) ? 8 : 0);
     }
 
-    private boolean rookPresent(TeamColor color, int row, int col) {
-        ChessPiece rook = board.getPiece(new ChessPosition(row, col));
-        return rook != null
-                && rook.getTeamColor() == color
-                && rook.getPieceType() == ChessPiece.PieceType.ROOK;
+    // Sets the castling flags so that exactly the given rights (see castlingRights) remain
+    void setCastlingRights(int rights) {
+        whiteKingMoved = (rights & 3) == 0;
+        whiteKingRookMoved = (rights & 1) == 0;
+        whiteQueenRookMoved = (rights & 2) == 0;
+        blackKingMoved = (rights & 12) == 0;
+        blackKingRookMoved = (rights & 4) == 0;
+        blackQueenRookMoved = (rights & 8) == 0;
     }
 
-    private void addEnPassantCandidates(ChessPiece piece, ChessPosition start, HashSet<ChessMove> out) {
-        if (piece.getPieceType() != ChessPiece.PieceType.PAWN) {
-            return;
+    // Restores the en-passant square (-1 for none) and move counters of a position being loaded
+    void setState(int enPassant, int halfmoveClock, int fullmoveNumber) {
+        if (halfmoveClock < 0 || fullmoveNumber < 1) {
+            throw new IllegalArgumentException("move counters out of range");
         }
-        if (enPassantTarget == null) {
-            return;
+        this.enPassantTarget = enPassant < 0 ? null : Bitboards.position(enPassant);
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        resetHistory();
+    }
+
+    /**
+     * @return the square index (a1 = 0 ... h8 = 63) a pawn may capture onto en passant, or -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantTarget == null ? -1 : Bitboards.square(enPassantTarget);
+    }
+
+    private boolean piecePresent(TeamColor color, ChessPiece.PieceType type, int row, int col) {
+        ChessPiece piece = board.getPiece(Bitboards.square(row, col));
+        return piece != null
+                && piece.getTeamColor() == color
+                && piece.getPieceType() == type;
+    }
+
+    // Plays a move between two squares and passes the turn, returning the packed undo record for it
+    private long applyMove(int from, int to, ChessPiece.PieceType promotion) {
+        ChessPiece moving = board.getPiece(from);
+        if (moving == null) {
+            throw new IllegalArgumentException("no piece at " + Bitboards.position(from));
+        }
+        ChessPiece.PieceType type = moving.getPieceType();
+        ensureHistory();
+        if (type != ChessPiece.PieceType.PAWN) {
+            promotion = null;
+        }
+        logMove(PackedMove.of(from, to, promotion, PackedMove.NONE));
+        int enPassant = getEnPassantSquare();
+        boolean isEnPassantCapture = type == ChessPiece.PieceType.PAWN
+                && to == enPassant
+                && board.getPiece(to) == null
+                && Math.abs(Bitboards.column(to) - Bitboards.column(from)) == 1;
+        // The pawn taken en passant sits beside the mover, on the start row and end column
+        int captureSquare = isEnPassantCapture ? (from & ~7) | (to & 7) : to;
+        ChessPiece captured = board.getPiece(captureSquare);
+        long undo = from
+                | (long) to << UNDO_TO
+                | (long) moving.index() << UNDO_MOVED
+                | (long) (captured == null ? 0 : captured.index() + 1) << UNDO_CAPTURED
+                | (long) captureSquare << UNDO_CAPTURE_SQUARE
+                | (long) (enPassant + 1) << UNDO_EN_PASSANT
+                | (long) castlingFlags() << UNDO_CASTLING
+                | (long) halfmoveClock << UNDO_HALFMOVE;
+
+        boolean isCastling = type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2;
+        if (isEnPassantCapture) {
+            board.setPiece(captureSquare, null);
+        } else if (captured != null && captured.getPieceType() == ChessPiece.PieceType.ROOK) {
+            updateRookCastlingRights(captured.getTeamColor(), to);
         }
-        int dir = (piece.getTeamColor() == TeamColor.WHITE) ? 1 : -1;
-        if (enPassantTarget.getRow() != start.getRow() + dir) {
-            return;
+        if (promotion != null && type == ChessPiece.PieceType.PAWN) {
+            moving = ChessPiece.fromIndex(Bitboards.pieceIndex(moving.getTeamColor(), promotion));
         }
-        if (Math.abs(enPassantTarget.getColumn() - start.getColumn()) != 1) {
-            return;
+        board.setPiece(to, moving);
+        board.setPiece(from, null);
+        if (isCastling) {
+            applyCastlingRook(from, to);
         }
-        if (board.getPiece(enPassantTarget) != null) {
-            return;
+        updateCastlingRightsFromMove(moving, from, to, isCastling);
+
+        boolean doublePush = type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16;
+        enPassantTarget = doublePush ? Bitboards.position((from + to) >>> 1) : null;
+        halfmoveClock = type == ChessPiece.PieceType.PAWN || captured != null ? 0 : halfmoveClock + 1;
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
         }
-        ChessPosition capturedPos = new ChessPosition(start.getRow(), enPassantTarget.getColumn());
-        ChessPiece victim = board.getPiece(capturedPos);
-        if (victim != null
-                && victim.getPieceType() == ChessPiece.PieceType.PAWN
-                && victim.getTeamColor() != piece.getTeamColor()) {
-            out.add(new ChessMove(start, enPassantTarget, null));
+        teamTurn = opponent(teamTurn);
+        if (historySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, historySize * 2);
         }
+        positionHistory[historySize++] = positionKey();
+        return undo;
     }
 
-    private void forceApplyMove(ChessMove move) {
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        ChessPiece moving = board.getPiece(start);
-        if (moving == null) {
-            return;
-        }
-        ChessPiece capturedAtEnd = board.getPiece(end);
-        ChessPosition nextEnPassantTarget = null;
-        boolean isEnPassantCapture =
-                moving.getPieceType() == ChessPiece.PieceType.PAWN
-                        && enPassantTarget != null
-                        && end.equals(enPassantTarget)
-                        && board.getPiece(end) == null
-                        && Math.abs(end.getColumn() - start.getColumn()) == 1;
-        if (isEnPassantCapture) {
-            board.addPiece(new ChessPosition(start.getRow(), end.getColumn()), null);
+    // True if the current position is in the repetition history the given number of times
+    private boolean hasOccurred(int times) {
+        // Every repeat takes at least four plies without a capture or pawn move
+        if (positionHistory == null || halfmoveClock < 4 * (times - 1)) {
+            return false;
         }
-        boolean isCastling =
-                moving.getPieceType() == ChessPiece.PieceType.KING
-                        && start.getRow() == end.getRow()
-                        && Math.abs(end.getColumn() - start.getColumn()) == 2;
-        if (isCastling) {
-            applyCastling(moving, start, end);
-        } else {
-            revokeCastlingIfRookCaptured(capturedAtEnd, end);
-            board.movePiece(move);
-        }
-        updateCastlingRightsFromMove(moving, start, end);
-        if (moving.getPieceType() == ChessPiece.PieceType.PAWN
-                && start.getColumn() == end.getColumn()
-                && Math.abs(end.getRow() - start.getRow()) == 2) {
-            int midRow = (start.getRow() + end.getRow()) / 2;
-            nextEnPassantTarget = new ChessPosition(midRow, start.getColumn());
-        }
-        enPassantTarget = nextEnPassantTarget;
-    }
-
-    private void applyCastling(ChessPiece moving, ChessPosition start, ChessPosition end) {
-        int row = start.getRow();
-        board.addPiece(end, moving);
-        board.addPiece(start, null);
-        if (end.getColumn() == 7) {
-            ChessPosition rookFrom = new ChessPosition(row, 8);
-            ChessPiece rook = board.getPiece(rookFrom);
-            board.addPiece(new ChessPosition(row, 6), rook);
-            board.addPiece(rookFrom, null);
-        } else {
-            ChessPosition rookFrom = new ChessPosition(row, 1);
-            ChessPiece rook = board.getPiece(rookFrom);
-            board.addPiece(new ChessPosition(row, 4), rook);
-            board.addPiece(rookFrom, null);
+        long current = positionHistory[historySize - 1];
+        int oldest = Math.max(0, historySize - 1 - halfmoveClock);
+        int seen = 1;
+        // Same side to move means an even number of plies back
+        for (int i = historySize - 5; i >= oldest; i -= 2) {
+            if (positionHistory[i] == current && ++seen == times) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void updateCastlingRightsFromMove(ChessPiece moving, ChessPosition start, ChessPosition end) {
-        TeamColor color = moving.getTeamColor();
-        if (moving.getPieceType() == ChessPiece.PieceType.KING) {
-            if (color == TeamColor.WHITE) {
-                whiteKingMoved = true;
-            } else {
-                blackKingMoved = true;
+    // Appends to the move log, noting the start position before the first move
+    private void logMove(int move) {
+        if (moveLog == null || moveCount == 0) {
+            if (startFen == null) {
+                startFen = toFen();
             }
-            if (start.getRow() == end.getRow() && Math.abs(end.getColumn() - start.getColumn()) == 2) {
-                updateKingCastlingRookMoved(color, end.getColumn());
+            if (moveLog == null) {
+                moveLog = new int[64];
             }
+        } else if (moveCount == moveLog.length) {
+            moveLog = Arrays.copyOf(moveLog, moveCount * 2);
         }
-        if (moving.getPieceType() == ChessPiece.PieceType.ROOK) {
-            updateRookCastlingRights(color, start);
+        moveLog[moveCount++] = move;
+    }
+
+    // Forgets the repetition history and move log after the position was replaced wholesale
+    private void resetHistory() {
+        positionHistory = null;
+        historySize = 0;
+        moveLog = null;
+        moveCount = 0;
+        startFen = null;
+    }
+
+    // Starts the repetition history at the current position if this game does not have one yet,
+    // e.g. after setBoard or when read back from JSON written before it was tracked
+    private void ensureHistory() {
+        if (positionHistory == null || historySize == 0) {
+            positionHistory = new long[16];
+            positionHistory[0] = positionKey();
+            historySize = 1;
         }
     }
 
-    private void updateKingCastlingRookMoved(TeamColor color, int endCol) {
-        if (color == TeamColor.WHITE) {
-            if (endCol == 7) {
-                whiteKingRookMoved = true;
-            } else if (endCol == 3) {
-                whiteQueenRookMoved = true;
-            }
-        } else {
-            if (endCol == 7) {
-                blackKingRookMoved = true;
-            } else if (endCol == 3) {
-                blackQueenRookMoved = true;
-            }
+    // Drops keys that can no longer repeat once a capture or pawn move resets the halfmove clock,
+    // keeping the array; between resets the window only grows, so nothing is copied per move
+    private void trimHistory() {
+        if (halfmoveClock == 0 && historySize > 1) {
+            positionHistory[0] = positionHistory[historySize - 1];
+            historySize = 1;
         }
     }
 
-    private void updateRookCastlingRights(TeamColor color, ChessPosition start) {
-        if (color == TeamColor.WHITE && start.getRow() == 1) {
-            if (start.getColumn() == 1) {
-                whiteQueenRookMoved = true;
-            }
-            if (start.getColumn() == 8) {
-                whiteKingRookMoved = true;
-            }
+    // The move log as flag-free PackedMove ints, oldest first
+    int[] moveLog() {
+        return moveLog == null ? new int[0] : Arrays.copyOf(moveLog, moveCount);
+    }
+
+    // Restores a move log saved by moveLog, played from the given FEN
+    void setMoveLog(String startFen, int[] moves) {
+        this.startFen = moves.length == 0 ? null : startFen;
+        this.moveLog = moves.length == 0 ? null : moves.clone();
+        this.moveCount = moves.length;
+    }
+
+    // Position keys that can still repeat, oldest first and ending with the current position
+    long[] repetitionHistory() {
+        if (positionHistory == null) {
+            return new long[0];
         }
-        if (color == TeamColor.BLACK && start.getRow() == 8) {
-            if (start.getColumn() == 1) {
-                blackQueenRookMoved = true;
+        int keep = Math.min(historySize, halfmoveClock + 1);
+        return Arrays.copyOfRange(positionHistory, historySize - keep, historySize);
+    }
+
+    // Restores keys saved by repetitionHistory; the last one must be the current position
+    void setRepetitionHistory(long[] keys) {
+        positionHistory = keys.length == 0 ? null : keys.clone();
+        historySize = keys.length;
+    }
+
+    // Packs the six king/rook moved flags into bits 0..5
+    private int castlingFlags() {
+        return (whiteKingMoved ? 1 : 0)
+                | (whiteKingRookMoved ? 2 : 0)
+                | (whiteQueenRookMoved ? 4 : 0)
+                | (blackKingMoved ? 8 : 0)
+                | (blackKingRookMoved ? 16 : 0)
+                | (blackQueenRookMoved ? 32 : 0);
+    }
+
+    void setCastlingFlags(int flags) {
+        whiteKingMoved = (flags & 1) != 0;
+        whiteKingRookMoved = (flags & 2) != 0;
+        whiteQueenRookMoved = (flags & 4) != 0;
+        blackKingMoved = (flags & 8) != 0;
+        blackKingRookMoved = (flags & 16) != 0;
+        blackQueenRookMoved = (flags & 32) != 0;
+    }
+
+    // Moves the rook that travels with a castling king
+    private void applyCastlingRook(int kingFrom, int kingTo) {
+        int rookFrom = kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+        int rookTo = kingTo > kingFrom ? kingFrom + 1 : kingFrom - 1;
+        board.setPiece(rookTo, board.getPiece(rookFrom));
+        board.setPiece(rookFrom, null);
+    }
+
+    private void updateCastlingRightsFromMove(ChessPiece moving, int from, int to, boolean isCastling) {
+        TeamColor color = moving.getTeamColor();
+        if (moving.getPieceType() == ChessPiece.PieceType.KING) {
+            if (color == TeamColor.WHITE) {
+                whiteKingMoved = true;
+            } else {
+                blackKingMoved = true;
             }
-            if (start.getColumn() == 8) {
-                blackKingRookMoved = true;
+            if (isCastling) {
+                // The castled rook has left its corner too
+                updateRookCastlingRights(color, to > from ? from + 3 : from - 4);
             }
         }
+        if (moving.getPieceType() == ChessPiece.PieceType.ROOK) {
+            updateRookCastlingRights(color, from);
+        }
     }
 
-    private void revokeCastlingIfRookCaptured(ChessPiece captured, ChessPosition square) {
-        if (captured == null) {
+    // Marks a corner rook as moved when the square it started on is its home corner
+    private void updateRookCastlingRights(TeamColor color, int square) {
+        int homeRow = color == TeamColor.WHITE ? 1 : 8;
+        if (Bitboards.row(square) != homeRow) {
             return;
         }
-        if (captured.getPieceType() != ChessPiece.PieceType.ROOK) {
-            return;
+        int col = Bitboards.column(square);
+        if (color == TeamColor.WHITE) {
+            whiteQueenRookMoved |= col == 1;
+            whiteKingRookMoved |= col == 8;
+        } else {
+            blackQueenRookMoved |= col == 1;
+            blackKingRookMoved |= col == 8;
         }
-        updateRookCastlingRights(captured.getTeamColor(), square);
     }
 
     private boolean hasKingMoved(TeamColor color) {
@@ -443,6 +809,20 @@ public class ChessGame {
         return (color == TeamColor.WHITE) ? whiteKingRookMoved : blackKingRookMoved;
     }
 
+    // Square index for a name like "e3", or -1
+    private static int parseSquare(String name) {
+        if (name.length() != 2) {
+            return -1;
+        }
+        int col = name.charAt(0) - 'a' + 1;
+        int row = name.charAt(1) - '0';
+        return col < 1 || col > 8 || row < 1 || row > 8 ? -1 : Bitboards.square(row, col);
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return (color == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
     private boolean hasQueenRookMoved(TeamColor color) {
         return (color == TeamColor.WHITE) ? whiteQueenRookMoved : blackQueenRookMoved;
     }
@@ -0,0 +1,356 @@
+package chess;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming Gson adapters for the chess types.
+ * <p>
+ * Games are written as FEN plus the few fields FEN lacks, boards as a FEN placement,
+ * positions as square names such as {@code "e4"} and pieces as FEN letters. Each adapter also
+ * reads the object layout that reflective Gson used to produce, so rows stored before the
+ * adapters existed still load.
+ */
+public final class ChessJson {
+
+    private static final TypeAdapter<ChessPosition> POSITION = new PositionAdapter().nullSafe();
+    private static final TypeAdapter<ChessPiece> PIECE = new PieceAdapter().nullSafe();
+    private static final TypeAdapter<ChessBoard> BOARD = new BoardAdapter().nullSafe();
+    private static final TypeAdapter<ChessMove> MOVE = new MoveAdapter().nullSafe();
+    private static final TypeAdapter<ChessGame> GAME = new GameAdapter().nullSafe();
+
+    private ChessJson() {
+    }
+
+    /**
+     * Registers the chess adapters on a builder.
+     *
+     * @return the same builder, for chaining
+     */
+    public static GsonBuilder registerTypeAdapters(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(ChessPosition.class, POSITION)
+                .registerTypeAdapter(ChessPiece.class, PIECE)
+                .registerTypeAdapter(ChessBoard.class, BOARD)
+                .registerTypeAdapter(ChessMove.class, MOVE)
+                .registerTypeAdapter(ChessGame.class, GAME);
+    }
+
+    // "e4"; legacy {"packed": row << 4 | col}
+    private static final class PositionAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            out.value(PackedMove.squareName(Bitboards.square(position)));
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            try {
+                if (in.peek() == JsonToken.STRING) {
+                    String name = in.nextString();
+                    if (name.length() != 2) {
+                        throw new JsonParseException("invalid square: " + name);
+                    }
+                    return ChessPosition.of(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+                }
+                int packed = -1;
+                in.beginObject();
+                while (in.hasNext()) {
+                    if (in.nextName().equals("packed")) {
+                        packed = in.nextInt();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+                return ChessPosition.of(packed >>> 4, packed & 0xF);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // "N" / "n"; legacy {"pieceColor": "WHITE", "type": "KNIGHT"}
+    private static final class PieceAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.value(String.valueOf(piece.fenLetter()));
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                String letter = in.nextString();
+                ChessPiece piece = letter.length() == 1 ? ChessPiece.fromFenLetter(letter.charAt(0)) : null;
+                if (piece == null) {
+                    throw new JsonParseException("invalid piece: " + letter);
+                }
+                return piece;
+            }
+            ChessGame.TeamColor color = null;
+            ChessPiece.PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = readEnum(in, ChessGame.TeamColor.class);
+                    case "type" -> type = readEnum(in, ChessPiece.PieceType.class);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new JsonParseException("piece needs a color and a type");
+            }
+            return ChessPiece.of(color, type);
+        }
+    }
+
+    // FEN placement; legacy {"squares": [[piece or null, ...] x 8]}
+    private static final class BoardAdapter extends TypeAdapter<ChessBoard> {
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            out.value(board.toFenPlacement());
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                try {
+                    return ChessBoard.fromFenPlacement(in.nextString());
+                } catch (IllegalArgumentException e) {
+                    throw new JsonParseException(e.getMessage(), e);
+                }
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("squares")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int row = 1; in.hasNext(); row++) {
+                    in.beginArray();
+                    for (int col = 1; in.hasNext(); col++) {
+                        ChessPiece piece = PIECE.read(in);
+                        if (piece != null) {
+                            if (row > 8 || col > 8) {
+                                throw new JsonParseException("board is larger than 8x8");
+                            }
+                            board.addPiece(ChessPosition.of(row, col), piece);
+                        }
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+    }
+
+    // {"startPosition": "e7", "endPosition": "e8", "promotionPiece": "QUEEN"}
+    private static final class MoveAdapter extends TypeAdapter<ChessMove> {
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.beginObject();
+            out.name("startPosition");
+            POSITION.write(out, move.getStartPosition());
+            out.name("endPosition");
+            POSITION.write(out, move.getEndPosition());
+            if (move.getPromotionPiece() != null) {
+                out.name("promotionPiece").value(move.getPromotionPiece().name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = POSITION.read(in);
+                    case "endPosition" -> end = POSITION.read(in);
+                    case "promotionPiece" -> promotion = readEnum(in, ChessPiece.PieceType.class);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (start == null || end == null) {
+                throw new JsonParseException("move needs a start and an end position");
+            }
+            return new ChessMove(start, end, promotion);
+        }
+    }
+
+    // {"fen": "...", "history": [keys], "start": "...", "moves": ["e2e4", ...], "gameOver": true,
+    // "resigned": "WHITE"}, optional fields omitted and start only when it is not the standard
+    // position; legacy is the reflective field layout of ChessGame
+    private static final class GameAdapter extends TypeAdapter<ChessGame> {
+        private static final String STANDARD_START = new ChessGame().toFen();
+        private static final String[] LEGACY_FLAGS = {
+                "whiteKingMoved", "whiteKingRookMoved", "whiteQueenRookMoved",
+                "blackKingMoved", "blackKingRookMoved", "blackQueenRookMoved"
+        };
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            out.name("fen").value(game.toFen());
+            long[] history = game.repetitionHistory();
+            if (history.length > 1) {
+                out.name("history").beginArray();
+                for (long key : history) {
+                    out.value(key);
+                }
+                out.endArray();
+            }
+            int[] moves = game.moveLog();
+            if (moves.length > 0) {
+                String start = game.getStartFen();
+                if (!start.equals(STANDARD_START)) {
+                    out.name("start").value(start);
+                }
+                out.name("moves").beginArray();
+                for (int move : moves) {
+                    out.value(PackedMove.toString(move));
+                }
+                out.endArray();
+            }
+            if (game.hasGameOverFlag()) {
+                out.name("gameOver").value(true);
+            }
+            if (game.getResigned() != null) {
+                out.name("resigned").value(game.getResigned().name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            String fen = null;
+            long[] history = null;
+            int historySize = -1;
+            String start = STANDARD_START;
+            int[] moves = null;
+            boolean gameOver = false;
+            ChessGame.TeamColor resigned = null;
+            // Legacy fields
+            ChessBoard board = null;
+            ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+            ChessPosition enPassant = null;
+            int castlingFlags = 0;
+            int halfmoveClock = 0;
+            int fullmoveNumber = 1;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "fen" -> fen = in.nextString();
+                    case "history", "positionHistory" -> history = readKeys(in);
+                    case "historySize" -> historySize = in.nextInt();
+                    case "start" -> start = in.nextString();
+                    case "moves" -> moves = readMoves(in);
+                    case "gameOver" -> gameOver = in.nextBoolean();
+                    case "resigned" -> resigned = readEnum(in, ChessGame.TeamColor.class);
+                    case "board" -> board = BOARD.read(in);
+                    case "teamTurn" -> turn = readEnum(in, ChessGame.TeamColor.class);
+                    case "enPassantTarget" -> enPassant = POSITION.read(in);
+                    case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                    case "fullmoveNumber" -> fullmoveNumber = in.nextInt();
+                    default -> {
+                        int flag = Arrays.asList(LEGACY_FLAGS).indexOf(name);
+                        if (flag >= 0 && in.nextBoolean()) {
+                            castlingFlags |= 1 << flag;
+                        } else if (flag < 0) {
+                            in.skipValue();
+                        }
+                    }
+                }
+            }
+            in.endObject();
+
+            ChessGame game;
+            try {
+                if (fen != null) {
+                    game = ChessGame.fromFen(fen);
+                } else {
+                    game = board == null ? new ChessGame() : new ChessGame(board, turn);
+                    game.setCastlingFlags(castlingFlags);
+                    game.setState(enPassant == null ? -1 : Bitboards.square(enPassant), halfmoveClock, fullmoveNumber);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException(e.getMessage(), e);
+            }
+            if (history != null) {
+                int size = historySize < 0 ? history.length : Math.min(historySize, history.length);
+                game.setRepetitionHistory(Arrays.copyOf(history, size));
+            }
+            if (moves != null) {
+                game.setMoveLog(start, moves);
+            }
+            game.setGameOver(gameOver);
+            game.setResigned(resigned);
+            return game;
+        }
+
+        private static int[] readMoves(JsonReader in) throws IOException {
+            int[] moves = new int[64];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == moves.length) {
+                    moves = Arrays.copyOf(moves, size * 2);
+                }
+                try {
+                    moves[size++] = PackedMove.parse(in.nextString());
+                } catch (IllegalArgumentException e) {
+                    throw new JsonParseException(e.getMessage(), e);
+                }
+            }
+            in.endArray();
+            return Arrays.copyOf(moves, size);
+        }
+
+        private static long[] readKeys(JsonReader in) throws IOException {
+            long[] keys = new long[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                keys[size++] = in.nextLong();
+            }
+            in.endArray();
+            return Arrays.copyOf(keys, size);
+        }
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("invalid " + type.getSimpleName() + ": " + name, e);
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Represents a single chess piece
@@ -13,9 +13,6 @@ import java.util.Set;
  */
 public class ChessPiece {
 
-    private static final int MIN = 1;
-    private static final int MAX = 8;
-
     private final ChessGame.TeamColor pieceColor;
     private final ChessPiece.PieceType type;
 
@@ -30,6 +27,20 @@ public class ChessPiece {
                     PieceType.KING, 'k'
             );
 
+    // Lowercase FEN letters, indexed by PieceType.ordinal()
+    private static final String FEN_LETTERS = "kqbnrp";
+
+    // One shared instance per color/type, in Bitboards.pieceIndex order
+    private static final ChessPiece[] BY_INDEX = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType pieceType : PieceType.values()) {
+                BY_INDEX[Bitboards.pieceIndex(color, pieceType)] = new ChessPiece(color, pieceType);
+            }
+        }
+    }
+
     // Creates a chess piece with a team color and a piece type
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         // Validate inputs
@@ -69,6 +80,46 @@ public class ChessPiece {
         return type;
     }
 
+    /**
+     * Returns the shared piece for a color and type. Pieces are immutable, so callers should
+     * prefer this to the constructor and avoid allocating duplicates.
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        if (pieceColor == null) {
+            throw new IllegalArgumentException("pieceColor cannot be null");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("type cannot be null");
+        }
+        return BY_INDEX[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
+    // Returns the shared piece for a Bitboards.pieceIndex value
+    static ChessPiece fromIndex(int index) {
+        return BY_INDEX[index];
+    }
+
+    // FEN letter: uppercase for white, lowercase for black
+    char fenLetter() {
+        char letter = TYPE_TO_CHAR.get(type);
+        return pieceColor == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter;
+    }
+
+    // Shared piece for a FEN letter, or null if the letter names no piece
+    static ChessPiece fromFenLetter(char letter) {
+        int type = FEN_LETTERS.indexOf(Character.toLowerCase(letter));
+        if (type < 0) {
+            return null;
+        }
+        // White pieces take the first six slots (see Bitboards.pieceIndex)
+        return BY_INDEX[Character.isUpperCase(letter) ? type : 6 + type];
+    }
+
+    // This piece's Bitboards.pieceIndex value
+    int index() {
+        return Bitboards.pieceIndex(pieceColor, type);
+    }
+
     /**
      * Calculates all the positions a chess piece can move to
      * Does not take into account moves that are illegal due to leaving the king in
@@ -84,22 +135,19 @@ public class ChessPiece {
             throw new IllegalArgumentException("myPosition cannot be null");
         }
 
-        Set<ChessMove> moves = new HashSet<>();
+        List<ChessMove> moves = new ArrayList<>();
+        int from = Bitboards.square(myPosition);
+        long occupied = board.getOccupancy();
+        long notOwn = ~board.getOccupancy(pieceColor);
 
         switch (type) {
-            case PAWN -> addPawnMoves(board, myPosition, moves);
-            case KNIGHT -> addKnightMoves(board, myPosition, moves);
-            case BISHOP -> addSlidingMoves(board, myPosition, moves, new int[][]{
-                    {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
-            });
-            case ROOK -> addSlidingMoves(board, myPosition, moves, new int[][]{
-                    {1, 0}, {-1, 0}, {0, 1}, {0, -1}
-            });
-            case QUEEN -> addSlidingMoves(board, myPosition, moves, new int[][]{
-                    {1, 1}, {1, -1}, {-1, 1}, {-1, -1},
-                    {1, 0}, {-1, 0}, {0, 1}, {0, -1}
-            });
-            case KING -> addKingMoves(board, myPosition, moves);
+            case PAWN -> addPawnMoves(board, from, myPosition, moves);
+            case KNIGHT -> addTargets(myPosition, Attacks.knight(from) & notOwn, moves);
+            case BISHOP -> addTargets(myPosition, Attacks.bishop(from, occupied) & notOwn, moves);
+            case ROOK -> addTargets(myPosition, Attacks.rook(from, occupied) & notOwn, moves);
+            case QUEEN -> addTargets(myPosition, Attacks.queen(from, occupied) & notOwn, moves);
+            // Castling intentionally not handled here (requires game state).
+            case KING -> addTargets(myPosition, Attacks.king(from) & notOwn, moves);
         }
 
         return moves;
@@ -109,138 +157,48 @@ public class ChessPiece {
     // Move generation helpers
     // -----------------------
 
-    private void addPawnMoves(ChessBoard board, ChessPosition from, Set<ChessMove> moves) {
-        int r = from.getRow();
-        int c = from.getColumn();
-
-        int dir = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int startRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        // Forward one
-        int r1 = r + dir;
-        if (onBoard(r1, c) && board.getPiece(new ChessPosition(r1, c)) == null) {
-            ChessPosition to1 = new ChessPosition(r1, c);
-            if (r1 == promotionRow) {
-                addPromotionMoves(from, to1, moves);
-            } else {
-                moves.add(new ChessMove(from, to1, null));
-            }
+    private void addPawnMoves(ChessBoard board, int from, ChessPosition fromPosition, List<ChessMove> moves) {
+        boolean white = pieceColor == ChessGame.TeamColor.WHITE;
+        long empty = ~board.getOccupancy();
+        long enemies = board.getOccupancy(white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
 
-            // Forward two (only if forward one is clear)
-            int r2 = r + 2 * dir;
-            if (r == startRow && onBoard(r2, c) && board.getPiece(new ChessPosition(r2, c)) == null) {
-                moves.add(new ChessMove(from, new ChessPosition(r2, c), null));
-            }
+        // Forward one, then forward two only from the start row and only if forward one is clear
+        long single = white ? (Bitboards.bit(from) << 8) & empty : (Bitboards.bit(from) >>> 8) & empty;
+        long targets = single;
+        if (single != 0 && Bitboards.row(from) == (white ? 2 : 7)) {
+            targets |= white ? (single << 8) & empty : (single >>> 8) & empty;
         }
 
         // Diagonal captures
-        for (int dc : new int[]{-1, 1}) {
-            int rr = r + dir;
-            int cc = c + dc;
-            if (!onBoard(rr, cc)) {
-                continue;
-            }
-
-            ChessPosition to = new ChessPosition(rr, cc);
-            ChessPiece target = board.getPiece(to);
-            if (target != null && target.getTeamColor() != this.pieceColor) {
-                if (rr == promotionRow) {
-                    addPromotionMoves(from, to, moves);
-                } else {
-                    moves.add(new ChessMove(from, to, null));
-                }
-            }
-        }
+        targets |= Attacks.pawn(pieceColor, from) & enemies;
 
         // En passant intentionally not handled here (requires game history).
-    }
-
-    private void addKnightMoves(ChessBoard board, ChessPosition from, Set<ChessMove> moves) {
-        int r = from.getRow();
-        int c = from.getColumn();
-
-        int[][] deltas = {
-                {2, 1}, {2, -1}, {-2, 1}, {-2, -1},
-                {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
-        };
-
-        for (int[] d : deltas) {
-            tryAddStepMove(board, from, r + d[0], c + d[1], moves);
-        }
-    }
-
-    private void addKingMoves(ChessBoard board, ChessPosition from, Set<ChessMove> moves) {
-        int r = from.getRow();
-        int c = from.getColumn();
-
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0) {
-                    continue;
-                }
-                tryAddStepMove(board, from, r + dr, c + dc, moves);
-            }
-        }
-
-        // Castling intentionally not handled here (requires game state).
-    }
-
-    private void addSlidingMoves(ChessBoard board, ChessPosition from, Set<ChessMove> moves, int[][] directions) {
-        int r = from.getRow();
-        int c = from.getColumn();
-
-        for (int[] d : directions) {
-            int dr = d[0];
-            int dc = d[1];
-
-            int rr = r + dr;
-            int cc = c + dc;
-
-            while (onBoard(rr, cc)) {
-                ChessPosition to = new ChessPosition(rr, cc);
-                ChessPiece target = board.getPiece(to);
-
-                if (target == null) {
-                    moves.add(new ChessMove(from, to, null));
-                    rr += dr;
-                    cc += dc;
-                    continue;
-                }
-
-                // occupied
-                if (target.getTeamColor() != this.pieceColor) {
-                    moves.add(new ChessMove(from, to, null));
-                }
-                break;
+        long promotionRank = white ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        for (; targets != 0; targets = Bitboards.dropFirst(targets)) {
+            int to = Bitboards.first(targets);
+            ChessPosition toPosition = Bitboards.position(to);
+            if ((Bitboards.bit(to) & promotionRank) != 0) {
+                addPromotionMoves(fromPosition, toPosition, moves);
+            } else {
+                moves.add(new ChessMove(fromPosition, toPosition, null));
             }
         }
     }
 
-    private void tryAddStepMove(ChessBoard board, ChessPosition from, int toRow, int toCol, Set<ChessMove> moves) {
-        if (!onBoard(toRow, toCol)) {
-            return;
-        }
-
-        ChessPosition to = new ChessPosition(toRow, toCol);
-        ChessPiece target = board.getPiece(to);
-
-        if (target == null || target.getTeamColor() != this.pieceColor) {
-            moves.add(new ChessMove(from, to, null));
+    // Adds a plain move to every square in the target set
+    private static void addTargets(ChessPosition from, long targets, List<ChessMove> moves) {
+        for (; targets != 0; targets = Bitboards.dropFirst(targets)) {
+            moves.add(new ChessMove(from, Bitboards.position(Bitboards.first(targets)), null));
         }
     }
 
-    private void addPromotionMoves(ChessPosition from, ChessPosition to, Set<ChessMove> moves) {
+    private void addPromotionMoves(ChessPosition from, ChessPosition to, List<ChessMove> moves) {
         moves.add(new ChessMove(from, to, PieceType.QUEEN));
         moves.add(new ChessMove(from, to, PieceType.ROOK));
         moves.add(new ChessMove(from, to, PieceType.BISHOP));
         moves.add(new ChessMove(from, to, PieceType.KNIGHT));
     }
 
-    private static boolean onBoard(int row, int col) {
-        return row >= MIN && row <= MAX && col >= MIN && col <= MAX;
-    }
-
     @Override
     public boolean equals(Object o) {
         return (o instanceof ChessPiece other)
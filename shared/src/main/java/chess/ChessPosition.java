@@ -14,11 +14,38 @@ public class ChessPosition {
     // Pack row and col into one 16-bit value: high nibble = row, low nibble = col.
     private final short packed;
 
+    // One shared instance per square, indexed (row-1)*8 + (col-1) like Bitboards.square
+    private static final ChessPosition[] BY_SQUARE = new ChessPosition[64];
+
+    static {
+        for (int row = MIN; row <= MAX; row++) {
+            for (int col = MIN; col <= MAX; col++) {
+                BY_SQUARE[((row - 1) << 3) | (col - 1)] = new ChessPosition(row, col);
+            }
+        }
+    }
+
     public ChessPosition(int row, int col) {
         requireOnBoard(row, col);
         this.packed = (short) ((row << 4) | col);
     }
 
+    /**
+     * Returns the shared position for a square. Positions are immutable, so callers should
+     * prefer this to the constructor and avoid allocating duplicates.
+     *
+     * @throws IllegalArgumentException if row or col is outside 1..8
+     */
+    public static ChessPosition of(int row, int col) {
+        requireOnBoard(row, col);
+        return BY_SQUARE[((row - 1) << 3) | (col - 1)];
+    }
+
+    // Shared position for a square index (a1 = 0 ... h8 = 63)
+    static ChessPosition of(int square) {
+        return BY_SQUARE[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -0,0 +1,295 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates strictly legal moves for one side of a {@link ChessGame}.
+ * <p>
+ * Checkers and pinned pieces are worked out once per call from the king square, so every
+ * emitted move is legal without playing it out: in check, non-king moves must capture the
+ * checker or block its ray; pinned pieces may only slide along their pin line; king steps
+ * are tested against the attack tables with the king lifted off the board. En passant is
+ * the one move that clears two squares on a rank, so it is verified with an explicit ray
+ * test for the discovered-check case.
+ * <p>
+ * Moves are written as {@link PackedMove} ints into a caller-owned {@link MoveList}, so a
+ * reused generator and list allocate nothing. An instance keeps per-call state and must not
+ * be shared between threads; the static methods adapt to {@link ChessMove} collections.
+ */
+public final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
+    // State for the current call
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessGame.TeamColor us;
+    private ChessGame.TeamColor them;
+    private MoveList out;
+    private boolean stopAtFirst;
+    private boolean found;
+    // True to emit only captures and promotions
+    private boolean tacticalOnly;
+
+    private long occupied;
+    private long own;
+    private long enemy;
+    private int king;
+    private long checkers;
+    private long pinned;
+
+    /**
+     * Adds every legal move for the given color to {@code out}.
+     *
+     * @param game  the game supplying the board, castling rights and en-passant square
+     * @param color the side to generate for (not necessarily the side to move)
+     * @param from  bitboard of origin squares to generate for; {@link Bitboards#ALL} for every piece
+     * @param out   receives the moves
+     */
+    public static void legalMoves(ChessGame game, ChessGame.TeamColor color, long from, Collection<ChessMove> out) {
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, color, from, moves);
+        moves.addTo(out);
+    }
+
+    /**
+     * @return True if the given color has at least one legal move
+     */
+    public static boolean hasLegalMove(ChessGame game, ChessGame.TeamColor color) {
+        return new MoveGenerator().hasAny(game, color);
+    }
+
+    /**
+     * Appends every legal move for the given color and origin squares to {@code out}.
+     *
+     * @param from bitboard of origin squares to generate for; {@link Bitboards#ALL} for every piece
+     */
+    public void generate(ChessGame game, ChessGame.TeamColor color, long from, MoveList out) {
+        start(game, color, out, false);
+        run(from);
+    }
+
+    /**
+     * Appends the legal captures and promotions for the side to move to {@code out}, as a
+     * quiescence search wants. These are not every way out of check, so callers should look
+     * at {@link #checkers()} and generate all moves when it is not empty.
+     */
+    public void generateTactical(ChessGame game, MoveList out) {
+        start(game, game.getTeamTurn(), out, false);
+        tacticalOnly = true;
+        run(Bitboards.ALL);
+    }
+
+    /**
+     * Appends every legal move for the side to move to {@code out}.
+     */
+    public void generate(ChessGame game, MoveList out) {
+        generate(game, game.getTeamTurn(), Bitboards.ALL, out);
+    }
+
+    /**
+     * @return True if the given color has a legal move; stops at the first one found
+     */
+    public boolean hasAny(ChessGame game, ChessGame.TeamColor color) {
+        start(game, color, null, true);
+        run(Bitboards.ALL);
+        return found;
+    }
+
+    /**
+     * @return the pieces giving check to the side generated by the last call
+     */
+    public long checkers() {
+        return checkers;
+    }
+
+    private void start(ChessGame game, ChessGame.TeamColor color, MoveList out, boolean stopAtFirst) {
+        this.game = game;
+        this.board = game.getBoard();
+        this.us = color;
+        this.them = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        this.out = out;
+        this.stopAtFirst = stopAtFirst;
+        this.found = false;
+        this.tacticalOnly = false;
+        this.occupied = board.getOccupancy();
+        this.own = board.getOccupancy(us);
+        this.enemy = board.getOccupancy(them);
+        this.king = board.getKingSquare(us);
+        this.checkers = 0;
+        this.pinned = 0;
+    }
+
+    private void run(long from) {
+        // Without a king nothing can be in check or pinned
+        long checkMask = Bitboards.ALL;
+        if (king >= 0) {
+            checkers = board.attackersOf(king, them, occupied);
+            findPins();
+            if ((from & Bitboards.bit(king)) != 0) {
+                addKingMoves();
+            }
+            if (Bitboards.count(checkers) > 1) {
+                // Double check: only the king may move
+                return;
+            }
+            if (checkers != 0) {
+                int checker = Bitboards.first(checkers);
+                checkMask = Attacks.between(king, checker) | checkers;
+            }
+        }
+
+        long movers = own & from & ~board.getBitboard(us, ChessPiece.PieceType.KING);
+        for (; movers != 0 && !(stopAtFirst && found); movers = Bitboards.dropFirst(movers)) {
+            int square = Bitboards.first(movers);
+            ChessPiece.PieceType type = board.getPiece(square).getPieceType();
+            long allowed = checkMask & pinRay(square);
+            if (type == ChessPiece.PieceType.PAWN) {
+                addPawnMoves(square, allowed);
+            } else {
+                addTargets(square, Attacks.of(type, square, occupied) & targets() & allowed, 0);
+            }
+        }
+    }
+
+    // Pieces of ours that are the only blocker between our king and an enemy slider
+    private void findPins() {
+        long snipers = (Attacks.rook(king, enemy) & (pieces(them, ChessPiece.PieceType.ROOK) | queens(them)))
+                | (Attacks.bishop(king, enemy) & (pieces(them, ChessPiece.PieceType.BISHOP) | queens(them)));
+        for (; snipers != 0; snipers = Bitboards.dropFirst(snipers)) {
+            long blockers = Attacks.between(king, Bitboards.first(snipers)) & occupied;
+            if (blockers != 0 && Bitboards.dropFirst(blockers) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+    }
+
+    // Squares a piece may move to without exposing the king: anywhere unless it is pinned
+    private long pinRay(int square) {
+        return (pinned & Bitboards.bit(square)) == 0 ? Bitboards.ALL : Attacks.line(king, square);
+    }
+
+    private void addKingMoves() {
+        long withoutKing = occupied & ~Bitboards.bit(king);
+        long targets = Attacks.king(king) & targets();
+        for (; targets != 0; targets = Bitboards.dropFirst(targets)) {
+            int to = Bitboards.first(targets);
+            if (board.attackersOf(to, them, withoutKing) == 0) {
+                emit(king, to, null, captureFlag(to));
+            }
+        }
+        if (checkers == 0 && !tacticalOnly) {
+            addCastling(true);
+            addCastling(false);
+        }
+    }
+
+    private void addCastling(boolean kingSide) {
+        int homeRow = us == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (king != Bitboards.square(homeRow, 5) || !game.canCastle(us, kingSide)) {
+            return;
+        }
+        // Squares that must be empty, and squares the king crosses that must not be attacked
+        long empty = kingSide
+                ? Bitboards.bit(king + 1) | Bitboards.bit(king + 2)
+                : Bitboards.bit(king - 1) | Bitboards.bit(king - 2) | Bitboards.bit(king - 3);
+        if ((occupied & empty) != 0) {
+            return;
+        }
+        int step = kingSide ? 1 : -1;
+        long withoutKing = occupied & ~Bitboards.bit(king);
+        if (board.attackersOf(king + step, them, withoutKing) != 0
+                || board.attackersOf(king + 2 * step, them, withoutKing) != 0) {
+            return;
+        }
+        emit(king, king + 2 * step, null, PackedMove.CASTLE);
+    }
+
+    private void addPawnMoves(int from, long allowed) {
+        boolean white = us == ChessGame.TeamColor.WHITE;
+        long empty = ~occupied;
+        long promotionRank = white ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long single = (white ? Bitboards.bit(from) << 8 : Bitboards.bit(from) >>> 8) & empty;
+        if (tacticalOnly) {
+            single &= promotionRank;
+        } else if (single != 0 && Bitboards.row(from) == (white ? 2 : 7)) {
+            long twice = (white ? single << 8 : single >>> 8) & empty & allowed;
+            if (twice != 0) {
+                emit(from, Bitboards.first(twice), null, PackedMove.DOUBLE_PUSH);
+            }
+        }
+        long targets = single | (Attacks.pawn(us, from) & enemy);
+        addTargets(from, targets & allowed, promotionRank);
+
+        int target = game.getEnPassantSquare();
+        if (target >= 0 && (Attacks.pawn(us, from) & Bitboards.bit(target)) != 0) {
+            addEnPassant(from, target, white ? target - 8 : target + 8);
+        }
+    }
+
+    private void addEnPassant(int from, int target, int victim) {
+        ChessPiece captured = board.getPiece(victim);
+        if (captured == null || captured.getTeamColor() != them
+                || captured.getPieceType() != ChessPiece.PieceType.PAWN
+                || (occupied & Bitboards.bit(target)) != 0) {
+            return;
+        }
+        if (king >= 0) {
+            // In check, the capture has to remove the checker or land on its ray
+            if (checkers != 0 && (checkers & Bitboards.bit(victim)) == 0
+                    && (Attacks.between(king, Bitboards.first(checkers)) & Bitboards.bit(target)) == 0) {
+                return;
+            }
+            // Both pawns leave their squares at once, which can open a rank or diagonal to the king
+            long after = (occupied & ~Bitboards.bit(from) & ~Bitboards.bit(victim)) | Bitboards.bit(target);
+            long rooks = pieces(them, ChessPiece.PieceType.ROOK) | queens(them);
+            long bishops = pieces(them, ChessPiece.PieceType.BISHOP) | queens(them);
+            if ((Attacks.rook(king, after) & rooks) != 0 || (Attacks.bishop(king, after) & bishops) != 0) {
+                return;
+            }
+        }
+        emit(from, target, null, PackedMove.CAPTURE | PackedMove.EN_PASSANT);
+    }
+
+    // Emits a move to each target; targets on the promotion rank expand to the four promotions
+    private void addTargets(int from, long targets, long promotionRank) {
+        for (; targets != 0; targets = Bitboards.dropFirst(targets)) {
+            int to = Bitboards.first(targets);
+            int flags = captureFlag(to);
+            if ((Bitboards.bit(to) & promotionRank) != 0) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    emit(from, to, promotion, flags);
+                }
+            } else {
+                emit(from, to, null, flags);
+            }
+        }
+    }
+
+    // Squares pieces other than pawns may move to
+    private long targets() {
+        return tacticalOnly ? enemy : ~own;
+    }
+
+    private int captureFlag(int to) {
+        return (enemy & Bitboards.bit(to)) != 0 ? PackedMove.CAPTURE : 0;
+    }
+
+    private void emit(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        found = true;
+        if (out != null) {
+            out.add(PackedMove.of(from, to, promotion, flags));
+        }
+    }
+
+    private long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return board.getBitboard(color, type);
+    }
+
+    private long queens(ChessGame.TeamColor color) {
+        return board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+    }
+}
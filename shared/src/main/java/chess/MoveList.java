@@ -0,0 +1,67 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Reusable buffer of {@link PackedMove} values that move generation writes into without
+ * allocating. Clear and refill one list per search ply instead of creating collections.
+ */
+public final class MoveList {
+
+    // No legal chess position has more than 218 moves
+    public static final int CAPACITY = 256;
+
+    private final int[] moves = new int[CAPACITY];
+    private int size;
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /** Overwrites an entry, e.g. while reordering moves in place. */
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** @return True if the list holds the same move, ignoring flags */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.sameMove(moves[i], move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adapts the list to the public API by appending each move as a {@link ChessMove}. */
+    public void addTo(Collection<ChessMove> out) {
+        for (int i = 0; i < size; i++) {
+            out.add(PackedMove.toChessMove(moves[i]));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "" : ", ").append(PackedMove.toString(moves[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,119 @@
+package chess;
+
+/**
+ * Packs a move into a single {@code int} so move lists can be plain {@code int[]} buffers.
+ * <p>
+ * Layout: bits 0-5 start square, 6-11 end square (see {@link Bitboards}), 12-14 promotion
+ * piece (0 for none, otherwise {@code PieceType.ordinal() + 1}), 15 and up are flags that the
+ * generator fills in. Flags are hints for callers such as move ordering; two encodings name
+ * the same move when {@link #sameMove(int, int)} is true.
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    private static final int MOVE_BITS = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    // Indexed by PieceType.ordinal()
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private PackedMove() {
+    }
+
+    /** @return a packed move with no promotion */
+    public static int of(int from, int to, int flags) {
+        return from | to << 6 | flags;
+    }
+
+    /** @return a packed move promoting to the given type (null for none) */
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        return from | to << 6 | (promotion == null ? 0 : promotion.ordinal() + 1) << 12 | flags;
+    }
+
+    /** @return the packed form of a move object, without flags */
+    public static int of(ChessMove move) {
+        return of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /** @return the promotion piece type, or null if the move does not promote */
+    public static ChessPiece.PieceType promotion(int move) {
+        int code = (move >>> 12) & 7;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (7 << 12)) != 0;
+    }
+
+    /** @return True if both encodings name the same from, to and promotion, ignoring flags */
+    public static boolean sameMove(int a, int b) {
+        return (a & MOVE_BITS) == (b & MOVE_BITS);
+    }
+
+    /** @return the move as a {@link ChessMove} for the public API */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    /** Formats a move in coordinate notation, such as {@code e2e4} or {@code e7e8q}. */
+    public static String toString(int move) {
+        ChessPiece.PieceType promotion = promotion(move);
+        return squareName(from(move)) + squareName(to(move))
+                + (promotion == null ? "" : PIECE_LETTERS.charAt(promotion.ordinal()));
+    }
+
+    /**
+     * Parses coordinate notation as written by {@link #toString(int)}; the result has no flags.
+     *
+     * @throws IllegalArgumentException if the text is not a move in coordinate notation
+     */
+    public static int parse(String text) {
+        if (text.length() != 4 && text.length() != 5) {
+            throw new IllegalArgumentException("invalid move: " + text);
+        }
+        int from = parseSquare(text, 0);
+        int to = parseSquare(text, 2);
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            int letter = PIECE_LETTERS.indexOf(Character.toLowerCase(text.charAt(4)));
+            if (letter < 0 || TYPES[letter] == ChessPiece.PieceType.KING || TYPES[letter] == ChessPiece.PieceType.PAWN) {
+                throw new IllegalArgumentException("invalid move: " + text);
+            }
+            promotion = TYPES[letter];
+        }
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("invalid move: " + text);
+        }
+        return of(from, to, promotion, NONE);
+    }
+
+    // Square index named at text[offset..offset+1], or -1
+    static int parseSquare(CharSequence text, int offset) {
+        int file = text.charAt(offset) - 'a';
+        int rank = text.charAt(offset + 1) - '1';
+        return file < 0 || file > 7 || rank < 0 || rank > 7 ? -1 : rank * 8 + file;
+    }
+
+    // Algebraic name of a square index, e.g. "e4"
+    static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+}
@@ -0,0 +1,71 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Performance test (perft): counts the leaf nodes of the legal move tree to a fixed depth.
+ * <p>
+ * Counts for standard positions are published, so a mismatch pinpoints a move generation,
+ * make or undo bug, and the time taken measures the whole engine hot path.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts leaf nodes below the current position for the side to move.
+     * The game is played forward and taken back in place, and is unchanged on return.
+     *
+     * @param game  the position to search from
+     * @param depth number of plies to play
+     * @return the number of positions reached at exactly {@code depth} plies
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList[] lists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return count(game, new MoveGenerator(), lists, depth);
+    }
+
+    // One move list per remaining ply, reused across siblings so the search allocates nothing
+    private static long count(ChessGame game, MoveGenerator generator, MoveList[] lists, int depth) {
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        generator.generate(game, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            nodes += count(game, generator, lists, depth - 1);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Splits a perft count by root move, which is the usual way to narrow down a wrong count.
+     *
+     * @return leaf counts keyed by root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        List<ChessMove> moves = new ArrayList<>();
+        MoveGenerator.legalMoves(game, game.getTeamTurn(), Bitboards.ALL, moves);
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (ChessMove move : moves) {
+            game.doMove(move);
+            counts.put(move, perft(game, depth - 1));
+            game.undoMove();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,141 @@
+package chess;
+
+/**
+ * Material plus piece-square values for a tapered evaluation, in centipawns from white's
+ * point of view, kept up to date by {@link ChessBoard} as pieces move.
+ * <p>
+ * Each piece has a middlegame and an endgame value per square. A board sums both over its
+ * pieces together with a game phase: {@value #MAX_PHASE} with all minor and major pieces on
+ * the board, falling towards 0 as they come off. An evaluation blends the two sums by phase.
+ * Square tables are based on the Simplified Evaluation Function, with endgame tables that
+ * pull the king to the centre and push pawns forward.
+ */
+public final class PieceSquareTables {
+
+    /** Phase with every piece on the board; promotions can push a board's phase above it. */
+    public static final int MAX_PHASE = 24;
+
+    // Indexed by PieceType.ordinal(): king, queen, bishop, knight, rook, pawn
+    private static final int[] MIDGAME_VALUES = {0, 1025, 365, 337, 477, 82};
+    private static final int[] ENDGAME_VALUES = {0, 936, 297, 281, 512, 94};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    // Tables as seen by white, listed from a8 to h1 so they read like a board diagram
+    private static final int[] KING_MIDGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20,
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20,
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0,
+    };
+    private static final int[] PAWN_MIDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    // Indexed [Bitboards.pieceIndex][square], material included and negated for black
+    private static final int[][] MIDGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] midgame = {KING_MIDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_MIDGAME};
+        int[][] endgame = {KING_ENDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_ENDGAME};
+        for (int type = 0; type < 6; type++) {
+            for (int square = 0; square < 64; square++) {
+                // White reads the diagram upside down (a1 is its 57th entry); black reads it as is
+                int white = square ^ 56;
+                MIDGAME[type][square] = MIDGAME_VALUES[type] + midgame[type][white];
+                ENDGAME[type][square] = ENDGAME_VALUES[type] + endgame[type][white];
+                MIDGAME[6 + type][square] = -(MIDGAME_VALUES[type] + midgame[type][square]);
+                ENDGAME[6 + type][square] = -(ENDGAME_VALUES[type] + endgame[type][square]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    /** @return the middlegame value of a piece (by {@link Bitboards#pieceIndex}) on a square, for white */
+    public static int midgame(int pieceIndex, int square) {
+        return MIDGAME[pieceIndex][square];
+    }
+
+    /** @return the endgame value of a piece (by {@link Bitboards#pieceIndex}) on a square, for white */
+    public static int endgame(int pieceIndex, int square) {
+        return ENDGAME[pieceIndex][square];
+    }
+
+    /** @return how much a piece (by {@link Bitboards#pieceIndex}) adds to the game phase */
+    public static int phase(int pieceIndex) {
+        return PHASE_WEIGHTS[pieceIndex % 6];
+    }
+}
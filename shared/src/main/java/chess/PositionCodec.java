@@ -0,0 +1,97 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of a position, at most {@value #MAX_BYTES} bytes.
+ * <p>
+ * Layout: 8-byte occupancy bitboard; one 4-bit piece code ({@link Bitboards#pieceIndex}) per
+ * occupied square in square order, two per byte with the first in the high nibble; one byte
+ * with the side to move in bit 0 and castling rights (see {@link ChessGame#toFen()} order
+ * KQkq) in bits 1-4; one byte holding the en-passant file + 1, or 0; then the halfmove clock
+ * and move number as unsigned shorts. Like FEN it carries the position only, not the
+ * repetition history or whether the game has ended.
+ */
+public final class PositionCodec {
+
+    public static final int MAX_BYTES = 8 + 16 + 1 + 1 + 2 + 2;
+
+    private PositionCodec() {
+    }
+
+    /**
+     * @return the encoded position of the game
+     */
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupancy();
+        int pieces = Bitboards.count(occupied);
+        ByteBuffer out = ByteBuffer.allocate(8 + (pieces + 1) / 2 + 6);
+        out.putLong(occupied);
+        int pending = -1;
+        for (long squares = occupied; squares != 0; squares = Bitboards.dropFirst(squares)) {
+            int code = board.getPiece(Bitboards.first(squares)).index();
+            if (pending < 0) {
+                pending = code << 4;
+            } else {
+                out.put((byte) (pending | code));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            out.put((byte) pending);
+        }
+        int enPassant = game.getEnPassantSquare();
+        out.put((byte) ((game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0) | game.castlingRights() << 1));
+        out.put((byte) (enPassant < 0 ? 0 : (enPassant & 7) + 1));
+        out.putShort((short) Math.min(game.getHalfmoveClock(), 0xFFFF));
+        out.putShort((short) Math.min(game.getFullmoveNumber(), 0xFFFF));
+        return out.array();
+    }
+
+    /**
+     * @return a new game at the encoded position
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes == null || bytes.length < 14) {
+            throw new IllegalArgumentException("encoded position too short");
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        long occupied = in.getLong();
+        int pieces = Bitboards.count(occupied);
+        if (pieces > 32 || bytes.length != 8 + (pieces + 1) / 2 + 6) {
+            throw new IllegalArgumentException("encoded position has the wrong length");
+        }
+        ChessBoard board = new ChessBoard();
+        int current = 0;
+        int index = 0;
+        for (long squares = occupied; squares != 0; squares = Bitboards.dropFirst(squares), index++) {
+            int code;
+            if ((index & 1) == 0) {
+                current = in.get() & 0xFF;
+                code = current >>> 4;
+            } else {
+                code = current & 15;
+            }
+            if (code >= 12) {
+                throw new IllegalArgumentException("invalid piece code " + code);
+            }
+            board.setPiece(Bitboards.first(squares), ChessPiece.fromIndex(code));
+        }
+        int flags = in.get();
+        int enPassantFile = in.get();
+        ChessGame.TeamColor turn = (flags & 1) == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        if (enPassantFile < 0 || enPassantFile > 8) {
+            throw new IllegalArgumentException("invalid en-passant file " + enPassantFile);
+        }
+        int enPassant = enPassantFile == 0
+                ? -1
+                : Bitboards.square(turn == ChessGame.TeamColor.WHITE ? 6 : 3, enPassantFile);
+
+        ChessGame game = new ChessGame(board, turn);
+        game.setCastlingRights((flags >>> 1) & 15);
+        game.setState(enPassant, in.getShort() & 0xFFFF, in.getShort() & 0xFFFF);
+        return game;
+    }
+}
@@ -0,0 +1,183 @@
+package chess;
+
+/**
+ * Standard Algebraic Notation (SAN), as used by PGN: {@code e4}, {@code Nbd7}, {@code exd5},
+ * {@code e8=Q+}, {@code O-O-O#}.
+ * <p>
+ * Both directions work on {@link PackedMove} ints and look moves up through a reused
+ * {@link MoveGenerator}, so formatting or parsing a move only generates the moves of the one
+ * piece type involved. An instance keeps a generator and a move list and must not be shared
+ * between threads.
+ */
+public final class San {
+
+    // Indexed by PieceType.ordinal()
+    private static final String PIECE_LETTERS = "KQBNRP";
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+
+    /**
+     * Formats a legal move of the side to move, including the check or mate suffix.
+     *
+     * @throws IllegalArgumentException if the move is not legal in the game's position
+     */
+    public String format(ChessGame game, int move) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+            throw new IllegalArgumentException("no piece to move on " + PackedMove.squareName(from));
+        }
+        ChessPiece.PieceType type = piece.getPieceType();
+        moves.clear();
+        generator.generate(game, game.getTeamTurn(), board.getBitboard(game.getTeamTurn(), type), moves);
+        if (!moves.contains(move)) {
+            throw new IllegalArgumentException("illegal move: " + PackedMove.toString(move));
+        }
+
+        StringBuilder san = new StringBuilder(8);
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            if ((from & 7) != (to & 7)) {
+                san.append((char) ('a' + (from & 7))).append('x');
+            }
+            san.append(PackedMove.squareName(to));
+            ChessPiece.PieceType promotion = PackedMove.promotion(move);
+            if (promotion != null) {
+                san.append('=').append(PIECE_LETTERS.charAt(promotion.ordinal()));
+            }
+        } else {
+            san.append(PIECE_LETTERS.charAt(type.ordinal()));
+            appendDisambiguation(san, from, to);
+            if (board.getPiece(to) != null) {
+                san.append('x');
+            }
+            san.append(PackedMove.squareName(to));
+        }
+
+        game.doMove(move);
+        boolean hasReply = generator.hasAny(game, game.getTeamTurn());
+        boolean check = generator.checkers() != 0;
+        game.undoMove();
+        if (check) {
+            san.append(hasReply ? '+' : '#');
+        }
+        return san.toString();
+    }
+
+    /**
+     * Parses a SAN move for the side to move. Check, mate and annotation suffixes are ignored,
+     * as are the {@code x} and {@code -} separators; castling may use letter O or digit 0.
+     *
+     * @return the legal move, with the generator's flags
+     * @throws IllegalArgumentException if the text names no legal move or more than one
+     */
+    public int parse(ChessGame game, String text) {
+        int end = text.length();
+        while (end > 0 && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String san = text.substring(0, end);
+        ChessGame.TeamColor us = game.getTeamTurn();
+        ChessBoard board = game.getBoard();
+
+        if (san.equals("O-O") || san.equals("0-0") || san.equals("O-O-O") || san.equals("0-0-0")) {
+            int king = board.getKingSquare(us);
+            int to = king + (san.length() == 3 ? 2 : -2);
+            return find(game, ChessPiece.PieceType.KING, -1, -1, to, null, text);
+        }
+
+        int pos = 0;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        int letter = san.isEmpty() ? -1 : PIECE_LETTERS.indexOf(san.charAt(0));
+        if (letter >= 0 && letter != ChessPiece.PieceType.PAWN.ordinal()) {
+            type = ChessPiece.PieceType.values()[letter];
+            pos = 1;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        if (!san.isEmpty() && Character.isLetter(san.charAt(san.length() - 1))) {
+            int promoted = PIECE_LETTERS.indexOf(Character.toUpperCase(san.charAt(san.length() - 1)));
+            if (type != ChessPiece.PieceType.PAWN || promoted < 0 || san.length() < 3) {
+                throw new IllegalArgumentException("invalid move: " + text);
+            }
+            promotion = ChessPiece.PieceType.values()[promoted];
+            san = san.substring(0, san.charAt(san.length() - 2) == '=' ? san.length() - 2 : san.length() - 1);
+        }
+
+        if (san.length() - pos < 2) {
+            throw new IllegalArgumentException("invalid move: " + text);
+        }
+        int to = PackedMove.parseSquare(san, san.length() - 2);
+        if (to < 0) {
+            throw new IllegalArgumentException("invalid move: " + text);
+        }
+        // Whatever is left between the piece letter and the target is a file and/or rank hint
+        int file = -1;
+        int rank = -1;
+        for (int i = pos; i < san.length() - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                file = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                rank = c - '1';
+            } else if (c != 'x' && c != '-') {
+                throw new IllegalArgumentException("invalid move: " + text);
+            }
+        }
+        return find(game, type, file, rank, to, promotion, text);
+    }
+
+    // The one legal move of the given piece type onto the target that fits the hints
+    private int find(ChessGame game, ChessPiece.PieceType type, int file, int rank, int to,
+                     ChessPiece.PieceType promotion, String text) {
+        ChessGame.TeamColor us = game.getTeamTurn();
+        long from = game.getBoard().getBitboard(us, type);
+        if (file >= 0) {
+            from &= Bitboards.FILE_A << file;
+        }
+        if (rank >= 0) {
+            from &= Bitboards.RANK_1 << (rank * 8);
+        }
+        moves.clear();
+        generator.generate(game, us, from, moves);
+        int match = -1;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.to(move) == to && PackedMove.promotion(move) == promotion) {
+                if (match >= 0) {
+                    throw new IllegalArgumentException("ambiguous move: " + text);
+                }
+                match = move;
+            }
+        }
+        if (match < 0) {
+            throw new IllegalArgumentException("illegal move: " + text);
+        }
+        return match;
+    }
+
+    // Adds the file, rank or both of the origin when another piece of the same type can reach the target
+    private void appendDisambiguation(StringBuilder san, int from, int to) {
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int other = PackedMove.from(moves.get(i));
+            if (PackedMove.to(moves.get(i)) == to && other != from) {
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (ambiguous && (!sameFile || sameRank)) {
+            san.append((char) ('a' + (from & 7)));
+        }
+        if (ambiguous && sameFile) {
+            san.append((char) ('1' + (from >>> 3)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package chess;
+
+/**
+ * Random keys for Zobrist position hashing.
+ * <p>
+ * A position's key is the XOR of one key per piece on its square, plus keys for the side to
+ * move, each castling right still held and the en-passant file. Playing a move only flips the
+ * keys of what changed, so the hash is kept up to date in constant time.
+ */
+public final class Zobrist {
+
+    // Indexed [Bitboards.pieceIndex][square]
+    private static final long[][] PIECE = new long[12][64];
+    // Indexed by castling rights bits: white king side, white queen side, black king side, black queen side
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    // Fixed seed so keys (and anything persisted with them) match across JVMs
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    static {
+        long[] seed = {SEED};
+        for (long[] squares : PIECE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = nextRandom(seed);
+            }
+        }
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = nextRandom(seed);
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = nextRandom(seed);
+        }
+        BLACK_TO_MOVE = nextRandom(seed);
+    }
+
+    private Zobrist() {
+    }
+
+    /** @return the key for a piece (by {@link Bitboards#pieceIndex}) standing on a square */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE[pieceIndex][square];
+    }
+
+    /** @return the key for a set of castling rights (bit 0 white king side ... bit 3 black queen side) */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /** @return the key for an en-passant capture being possible on the given 0-based file */
+    public static long enPassantFile(int file) {
+        return EN_PASSANT_FILE[file];
+    }
+
+    /** @return the key toggled when black is to move */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // splitmix64
+    private static long nextRandom(long[] seed) {
+        long z = (seed[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,41 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+/**
+ * A move found in an {@link OpeningBook} with its weight; a higher weight means the move
+ * should be played more often.
+ */
+public final class BookMove {
+
+    private final transient int packedMove;
+    private final ChessMove move;
+    private final int weight;
+
+    public BookMove(int packedMove, int weight) {
+        this.packedMove = packedMove;
+        this.move = PackedMove.toChessMove(packedMove);
+        this.weight = weight;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    /**
+     * @return the move as a {@link PackedMove}, with the flags of the legal move it matched
+     */
+    public int getPackedMove() {
+        return packedMove;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return PackedMove.toString(packedMove) + " (" + weight + ")";
+    }
+}
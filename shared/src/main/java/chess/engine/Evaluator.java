@@ -0,0 +1,40 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Static evaluation of a position in centipawns, from the side to move's point of view.
+ * <p>
+ * Material and piece-square values, tapered between middlegame and endgame by how much
+ * material is left. The board keeps the sums up to date as moves are made and taken back,
+ * so evaluating is constant time.
+ */
+public final class Evaluator {
+
+    // Centipawns, indexed by PieceType.ordinal(); the king is never traded so it counts nothing
+    private static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluator() {
+    }
+
+    /**
+     * @return the score of the position for the side to move; positive is good for that side
+     */
+    public static int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (board.getMidgameScore() * phase
+                + board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * @return the nominal value of a piece type in centipawns, as used to order captures
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+}
@@ -0,0 +1,166 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.PolyglotKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Opening book read from a file in the Polyglot {@code .bin} format.
+ * <p>
+ * The file is a sorted array of 16-byte big-endian entries: an 8-byte position key, a 2-byte
+ * move, a 2-byte weight and a 4-byte learn value that is ignored. Keys are compared unsigned
+ * and a position's entries are adjacent. The file is memory-mapped read-only and searched in
+ * place with a binary search, so the book is never copied onto the heap and a lookup costs
+ * about log2(entries) page reads. A book may be shared between threads.
+ * <p>
+ * Moves encode the destination in bits 0-5 and the origin in bits 6-11 as square indexes
+ * (a1 = 0, h8 = 63), and the promotion piece in bits 12-14 (1 knight, 2 bishop, 3 rook,
+ * 4 queen). Castling is written as the king taking its own rook, e.g. {@code e1h1}.
+ * <p>
+ * Positions are looked up by their standard Polyglot hash ({@link PolyglotKey}), so books
+ * built by other tools can be read, unless another key function is given.
+ */
+public final class OpeningBook {
+
+    private static final int ENTRY_BYTES = 16;
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            null, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN
+    };
+
+    private final ByteBuffer entries;
+    private final int size;
+    private final ToLongFunction<ChessGame> keys;
+    // Each thread validates book moves with its own generator
+    private final ThreadLocal<MoveGenerator> generators = ThreadLocal.withInitial(MoveGenerator::new);
+    private final ThreadLocal<MoveList> legalMoves = ThreadLocal.withInitial(MoveList::new);
+
+    /**
+     * Maps a book keyed by the standard Polyglot hash.
+     */
+    public OpeningBook(Path path) throws IOException {
+        this(path, PolyglotKey::of);
+    }
+
+    /**
+     * Maps a book keyed by the given position key function.
+     *
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public OpeningBook(Path path, ToLongFunction<ChessGame> keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("not a Polyglot book: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            this.size = (int) (length / ENTRY_BYTES);
+        }
+        this.keys = keys;
+    }
+
+    /** @return the number of entries in the book */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the book's legal moves for the side to move, highest weight first; empty if
+     * the position is not in the book
+     */
+    public List<BookMove> moves(ChessGame game) {
+        List<BookMove> moves = new ArrayList<>();
+        long key = keys.applyAsLong(game);
+        MoveList legal = null;
+        for (int i = lowerBound(key); i < size && entries.getLong(i * ENTRY_BYTES) == key; i++) {
+            if (legal == null) {
+                legal = legalMoves.get();
+                legal.clear();
+                generators.get().generate(game, legal);
+            }
+            int move = toLegalMove(entries.getShort(i * ENTRY_BYTES + 8) & 0xFFFF, legal);
+            if (move != 0) {
+                moves.add(new BookMove(move, entries.getShort(i * ENTRY_BYTES + 10) & 0xFFFF));
+            }
+        }
+        moves.sort((a, b) -> Integer.compare(b.getWeight(), a.getWeight()));
+        return moves;
+    }
+
+    /**
+     * Picks one of the book's moves at random, each with a chance in proportion to its
+     * weight. Moves of weight 0 are never picked.
+     *
+     * @return the move as a {@link PackedMove}, or 0 if the book has no move to play
+     */
+    public int pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = moves(game);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.getWeight();
+        }
+        if (total == 0) {
+            return 0;
+        }
+        int target = random.nextInt(total);
+        for (BookMove move : moves) {
+            target -= move.getWeight();
+            if (target < 0) {
+                return move.getPackedMove();
+            }
+        }
+        return 0;
+    }
+
+    // Index of the first entry whose key is not below the given key, comparing unsigned
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(mid * ENTRY_BYTES), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // The legal move a book move stands for, with its flags, or 0 if it is not legal here
+    private static int toLegalMove(int bookMove, MoveList legal) {
+        int to = bookMove & 63;
+        int from = (bookMove >>> 6) & 63;
+        int promotion = (bookMove >>> 12) & 7;
+        if (promotion >= PROMOTIONS.length) {
+            return 0;
+        }
+        int move = PackedMove.of(from, to, PROMOTIONS[promotion], PackedMove.NONE);
+        for (int i = 0; i < legal.size(); i++) {
+            int candidate = legal.get(i);
+            if (PackedMove.sameMove(candidate, move)) {
+                return candidate;
+            }
+            // King takes own rook: the castling move to the g or c file
+            if ((candidate & PackedMove.CASTLE) != 0 && PackedMove.from(candidate) == from
+                    && (to - from == 3 || from - to == 4)
+                    && PackedMove.to(candidate) == (to > from ? from + 2 : from - 2)) {
+                return candidate;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,155 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.tablebase.Tablebase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches one position on several threads with lazy SMP.
+ * <p>
+ * Every thread runs an ordinary {@link Search} of the whole tree, all sharing one
+ * {@link TranspositionTable}. Helpers start their iterations at alternating depths, so they
+ * run ahead of the main thread and fill the table with results it then finds instead of
+ * searching. The main thread, on the caller's thread, decides when to stop and supplies the
+ * move; helpers are stopped as soon as it returns. Depth, node and time limits apply to the
+ * main thread, and the reported node count covers all threads.
+ * <p>
+ * An instance runs one search at a time and keeps its helper searches between calls.
+ */
+public final class ParallelSearch {
+
+    // Shared by every instance made without an executor: one thread per processor, since more
+    // helpers than cores only take turns. Extra helpers wait in the queue, and being stopped
+    // before they start they return at once. Idle threads time out.
+    private static final ExecutorService HELPER_THREADS = helperThreads(Runtime.getRuntime().availableProcessors());
+
+    private final TranspositionTable table;
+    private final Executor executor;
+    private final Search main;
+    private final List<Search> helpers = new ArrayList<>();
+    private OpeningBook book;
+    private Tablebase tablebase;
+
+    /**
+     * Creates a parallel search that runs its helpers on a shared pool of daemon threads, one
+     * per available processor.
+     */
+    public ParallelSearch(TranspositionTable table) {
+        this(table, HELPER_THREADS);
+    }
+
+    /**
+     * Creates a parallel search that runs its helpers on the given executor, which should
+     * have a thread free for each helper; a helper that only starts late is of little use.
+     */
+    public ParallelSearch(TranspositionTable table, Executor executor) {
+        this.table = table;
+        this.executor = executor;
+        this.main = new Search(table);
+    }
+
+    /**
+     * Searches the position of a game for the side to move. The game itself is not changed.
+     *
+     * @param threads threads to search with, including the calling thread
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("thread count must be at least 1");
+        }
+        int bookMove = book == null ? 0 : book.pick(position, ThreadLocalRandom.current());
+        if (bookMove != 0) {
+            return SearchResult.bookMove(bookMove);
+        }
+        while (helpers.size() < threads - 1) {
+            Search helper = new Search(table);
+            helper.setTablebase(tablebase);
+            helpers.add(helper);
+        }
+        ChessGame root = new ChessGame(position);
+        // Builds the board's lazy bitboards now, so the helpers' copies only ever read root
+        root.positionKey();
+        table.newSearch();
+        main.resetStop();
+        SearchLimits unlimited = new SearchLimits(0, 0, 0);
+        List<CompletableFuture<Void>> running = new ArrayList<>(threads - 1);
+        SearchResult result;
+        try {
+            for (int i = 1; i < threads; i++) {
+                Search helper = helpers.get(i - 1);
+                helper.resetStop();
+                int firstDepth = 1 + (i & 1);
+                running.add(CompletableFuture.runAsync(() -> helper.search(root, unlimited, firstDepth, false), executor));
+            }
+            result = main.search(root, limits, 1, false);
+        } finally {
+            for (int i = 0; i < running.size(); i++) {
+                helpers.get(i).stop();
+            }
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        }
+
+        long nodes = result.getNodes();
+        for (int i = 0; i < running.size(); i++) {
+            nodes += helpers.get(i).nodes();
+        }
+        return result.withNodes(nodes);
+    }
+
+    /**
+     * Plays from an opening book while it has a move for the position, without searching.
+     *
+     * @param book the book, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Gives every thread's search the endgame tables; see {@link Search#setTablebase}.
+     *
+     * @param tablebase the tables, or null to always search
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        main.setTablebase(tablebase);
+        for (Search helper : helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from any thread.
+     */
+    public void stop() {
+        main.stop();
+    }
+
+    private static ExecutorService helperThreads(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new HelperThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static final class HelperThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "search-helper-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Wdl;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Iterative-deepening principal variation search with a captures-only quiescence search.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, which may be shared by searches on other
+ * threads; outside the principal variation a deep enough entry ends the node at once. Moves
+ * are tried in the order: the table's move or the previous iteration's best line, captures by most valuable
+ * victim and least valuable attacker, two killer moves per ply, then quiet moves by history
+ * score. Moves are played and taken back in place on a private copy of the game, and every
+ * buffer is allocated once per instance, so a search allocates almost nothing.
+ * <p>
+ * A search stops at the limits it was given, when {@link #stop()} is called from another
+ * thread, when a stop condition given to it holds, or when its thread is interrupted, and
+ * then returns the result of the last full iteration. An instance runs one search at a time; use one per thread.
+ */
+public final class Search {
+
+    /** Score of mate at the root; mate in n plies scores {@code MATE - n}. */
+    public static final int MATE = 30000;
+    /** Deepest ply the search reaches, quiescence included. */
+    public static final int MAX_PLY = 96;
+    /**
+     * Score of a position the tablebase says is won, less the plies from the root; below
+     * every mate score, since the win may still be many moves away.
+     */
+    public static final int TABLEBASE_WIN = MATE - 2 * MAX_PLY;
+
+    private static final int INFINITY = MATE + 1;
+    // Limits are checked once every this many nodes (a power of two, minus one)
+    private static final int CHECK_INTERVAL = 2047;
+
+    // Move ordering bands; captures and promotions above killers above quiet moves
+    private static final int PV_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int KILLER_SCORE = 1 << 28;
+
+    private static final int DEFAULT_TABLE_MB = 16;
+
+    private final TranspositionTable table;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList[] moves = new MoveList[MAX_PLY + 1];
+    private final int[][] orderScores = new int[MAX_PLY + 1][MoveList.CAPACITY];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    // Indexed [piece index][to square]
+    private final int[][] history = new int[12][64];
+    // Triangular principal variation table: pv[ply] holds the best line from ply on
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+
+    private volatile boolean stopRequested;
+    private OpeningBook book;
+    private Tablebase tablebase;
+
+    // State for the current search
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    private BooleanSupplier stopCondition;
+    private boolean rootInCheck;
+    private int rootPieces;
+
+    /**
+     * Creates a search with a {@value #DEFAULT_TABLE_MB} MB transposition table of its own.
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * Creates a search using the given transposition table, which other searches may share.
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            moves[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches the position of a game for the side to move. The game itself is not changed.
+     *
+     * @return the best move found and its score; if the side to move has no legal move the
+     * result has no best move and scores the mate or stalemate
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    /**
+     * Searches like {@link #search(ChessGame, SearchLimits)}, and also stops once the given
+     * condition holds. The condition is checked along with the limits and belongs to this
+     * call alone, so unlike {@link #stop()} it can be set before the search starts and never
+     * stops a later search on the same instance.
+     *
+     * @param stopCondition checked every few thousand nodes, on the searching thread; null for none
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, BooleanSupplier stopCondition) {
+        stopRequested = false;
+        int bookMove = book == null ? 0 : book.pick(position, ThreadLocalRandom.current());
+        if (bookMove != 0) {
+            return SearchResult.bookMove(bookMove);
+        }
+        this.stopCondition = stopCondition;
+        try {
+            return search(position, limits, 1, true);
+        } finally {
+            this.stopCondition = null;
+        }
+    }
+
+    /**
+     * Plays from an opening book while it has a move for the position, without searching.
+     *
+     * @param book the book, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Searches with iterations starting at {@code firstDepth}. Helper threads in a
+     * {@link ParallelSearch} start at different depths so they spread over the tree, and
+     * leave advancing the table generation to the caller. Unlike the public method this does
+     * not clear an earlier {@link #stop()}, so a stop that races with the start still counts;
+     * call {@link #resetStop()} first.
+     */
+    SearchResult search(ChessGame position, SearchLimits limits, int firstDepth, boolean newGeneration) {
+        long start = System.nanoTime();
+        game = new ChessGame(position);
+        aborted = false;
+        nodes = 0;
+        nodeLimit = limits.getNodes() == 0 ? Long.MAX_VALUE : limits.getNodes();
+        deadline = limits.getMillis() == 0 ? Long.MAX_VALUE : start + limits.getMillis() * 1_000_000;
+        int maxDepth = limits.getDepth() == 0 ? MAX_PLY / 2 : Math.min(limits.getDepth(), MAX_PLY / 2);
+        previousPvLength = 0;
+        if (newGeneration) {
+            table.newSearch();
+        }
+        for (int[] killer : killers) {
+            killer[0] = killer[1] = 0;
+        }
+        for (int[] scores : history) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] /= 8;
+            }
+        }
+
+        MoveList root = moves[0];
+        root.clear();
+        generator.generate(game, root);
+        rootInCheck = generator.checkers() != 0;
+        rootPieces = Bitboards.count(game.getBoard().getOccupancy());
+        if (tablebase != null && rootPieces <= tablebase.getMaxPieces()) {
+            keepTablebaseMoves(root);
+        }
+        if (root.isEmpty()) {
+            int score = rootInCheck ? -MATE : 0;
+            return new SearchResult(0, score, 0, 0, elapsedMillis(start), new int[0]);
+        }
+
+        int bestMove = root.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] line = {bestMove};
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = search(depth, -INFINITY, INFINITY, 0, true);
+            if (aborted) {
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            bestMove = pv[0][0];
+            line = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, line, 0, line.length);
+            System.arraycopy(line, 0, previousPv, 0, line.length);
+            previousPvLength = line.length;
+            // A forced mate found at this depth cannot be improved on by going deeper
+            if (Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, elapsedMillis(start), line);
+    }
+
+    /**
+     * Scores positions from endgame tables once captures bring the piece count within their
+     * reach, and keeps to moves that hold the tables' value when the root is already there.
+     *
+     * @param tablebase the tables, or null to always search
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * @return the nodes visited so far by the running or last search
+     */
+    long nodes() {
+        return nodes;
+    }
+
+    // Negamax alpha-beta with a null window for every move after the first
+    private int search(int depth, int alpha, int beta, int ply, boolean onPv) {
+        pvLength[ply] = ply;
+        if (ply > 0) {
+            if (game.isRepetition() || game.isFiftyMoveRule() || game.isInsufficientMaterial()) {
+                return 0;
+            }
+            Wdl wdl = probeTablebase();
+            if (wdl != null) {
+                return wdl == Wdl.WIN ? TABLEBASE_WIN - ply : wdl == Wdl.LOSS ? -TABLEBASE_WIN + ply : 0;
+            }
+            if (depth <= 0) {
+                return quiesce(alpha, beta, ply);
+            }
+        }
+        if (countNode()) {
+            return 0;
+        }
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int tableMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        // The root moves were generated once, before the first iteration
+        MoveList list = moves[ply];
+        boolean inCheck = rootInCheck;
+        if (ply > 0) {
+            list.clear();
+            generator.generate(game, list);
+            inCheck = generator.checkers() != 0;
+        }
+        if (list.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(game);
+        }
+        if (inCheck) {
+            depth++;
+        }
+
+        int pvMove = onPv && ply < previousPvLength ? previousPv[ply] : 0;
+        int hashMove = pvMove != 0 ? pvMove : tableMove;
+        scoreMoves(list, ply, hashMove);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickNext(list, ply, i);
+            boolean quiet = !PackedMove.isCapture(move) && !PackedMove.isPromotion(move);
+            game.doMove(move);
+            int score;
+            boolean childOnPv = onPv && i == 0 && PackedMove.sameMove(move, pvMove);
+            if (i == 0) {
+                score = -search(depth - 1, -beta, -alpha, ply + 1, childOnPv);
+            } else {
+                score = -search(depth - 1, -alpha - 1, -alpha, ply + 1, false);
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, -beta, -alpha, ply + 1, false);
+                }
+            }
+            game.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            rememberCutoff(move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // Plays out captures until the position is quiet, so the evaluation is not taken mid-exchange
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(game);
+        }
+        MoveList list = moves[ply];
+        list.clear();
+        generator.generateTactical(game, list);
+        boolean inCheck = generator.checkers() != 0;
+        int best;
+        if (inCheck) {
+            // Every evasion must be tried, or a mate could be scored as a quiet position
+            list.clear();
+            generator.generate(game, list);
+            if (list.isEmpty()) {
+                return -MATE + ply;
+            }
+            best = -INFINITY;
+        } else {
+            best = Evaluator.evaluate(game);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        scoreMoves(list, ply, 0);
+        for (int i = 0; i < list.size(); i++) {
+            int move = pickNext(list, ply, i);
+            game.doMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            game.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Counts a node and checks the limits now and then; true once the search has to stop
+    private boolean countNode() {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            aborted |= stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadline
+                    || Thread.currentThread().isInterrupted()
+                    || (stopCondition != null && stopCondition.getAsBoolean());
+        }
+        return aborted;
+    }
+
+    private void scoreMoves(MoveList list, int ply, int hashMove) {
+        ChessBoard board = game.getBoard();
+        int[] scores = orderScores[ply];
+        int[] killer = killers[ply];
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            ChessPiece mover = board.getPiece(PackedMove.from(move));
+            int score;
+            if (PackedMove.sameMove(move, hashMove)) {
+                score = PV_SCORE;
+            } else if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+                // En passant leaves the target square empty, but always takes a pawn
+                ChessPiece victim = board.getPiece(PackedMove.to(move));
+                ChessPiece.PieceType promotion = PackedMove.promotion(move);
+                int gain = !PackedMove.isCapture(move) ? 0
+                        : Evaluator.value(victim == null ? ChessPiece.PieceType.PAWN : victim.getPieceType());
+                if (promotion != null) {
+                    gain += Evaluator.value(promotion);
+                }
+                score = CAPTURE_SCORE + gain * 16 - Evaluator.value(mover.getPieceType()) / 16;
+            } else if (PackedMove.sameMove(move, killer[0])) {
+                score = KILLER_SCORE + 1;
+            } else if (PackedMove.sameMove(move, killer[1])) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[pieceIndex(mover)][PackedMove.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Moves the best-scored remaining move to index i and returns it
+    private int pickNext(MoveList list, int ply, int i) {
+        int[] scores = orderScores[ply];
+        int best = i;
+        for (int j = i + 1; j < list.size(); j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = list.get(best);
+        if (best != i) {
+            list.set(best, list.get(i));
+            list.set(i, move);
+            int score = scores[best];
+            scores[best] = scores[i];
+            scores[i] = score;
+        }
+        return move;
+    }
+
+    // A quiet move caused a cutoff: try it early at this ply and for this piece elsewhere
+    private void rememberCutoff(int move, int ply, int depth) {
+        int[] killer = killers[ply];
+        if (!PackedMove.sameMove(move, killer[0])) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        // The move has been played and taken back, so the piece is back on its start square
+        ChessPiece mover = game.getBoard().getPiece(PackedMove.from(move));
+        int[] scores = history[pieceIndex(mover)];
+        scores[PackedMove.to(move)] = Math.min(scores[PackedMove.to(move)] + depth * depth, KILLER_SCORE - 1);
+    }
+
+    // The tablebase value of a position with fewer pieces than the root, or null if there is none
+    private Wdl probeTablebase() {
+        if (tablebase == null) {
+            return null;
+        }
+        int pieces = Bitboards.count(game.getBoard().getOccupancy());
+        return pieces < rootPieces && pieces <= tablebase.getMaxPieces() ? tablebase.probe(game) : null;
+    }
+
+    // Drops the root moves that give away the root's tablebase value; the search still picks
+    // among the rest, which is how a won ending makes progress without distance-to-mate tables
+    private void keepTablebaseMoves(MoveList root) {
+        Wdl value = tablebase.probe(game);
+        if (value == null || value == Wdl.LOSS) {
+            return;
+        }
+        int[] kept = new int[root.size()];
+        int count = 0;
+        for (int i = 0; i < root.size(); i++) {
+            int move = root.get(i);
+            game.doMove(move);
+            Wdl reply = tablebase.probe(game);
+            game.undoMove();
+            if (reply == null || reply.negate() == value) {
+                kept[count++] = move;
+            }
+        }
+        if (count > 0) {
+            root.clear();
+            for (int i = 0; i < count; i++) {
+                root.add(kept[i]);
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    // Mate scores count plies from the root; the table stores them counted from the node instead
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    private static int pieceIndex(ChessPiece piece) {
+        return Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,53 @@
+package chess.engine;
+
+/**
+ * How far a search may go: a maximum depth in plies, a node budget and a time budget.
+ * The search stops at whichever runs out first; 0 means no limit of that kind.
+ */
+public final class SearchLimits {
+
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+
+    public SearchLimits(int depth, long nodes, long millis) {
+        if (depth < 0 || nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException("search limits cannot be negative");
+        }
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    /** @return limits that search to a fixed depth */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /** @return limits that search until a number of nodes has been visited */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    /** @return limits that search for a number of milliseconds */
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(0, 0, millis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchLimits{depth=" + depth + ", nodes=" + nodes + ", millis=" + millis + '}';
+    }
+}
@@ -0,0 +1,117 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a search: the best move found, its score and the line the engine expects.
+ * <p>
+ * Scores are centipawns from the point of view of the side to move at the root. Mate scores
+ * are {@link Search#MATE} minus the number of plies to mate, negated when the side to move
+ * is the one being mated.
+ */
+public final class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+    private final int[] principalVariation;
+    private final boolean fromBook;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long millis, int[] principalVariation) {
+        this(bestMove, score, depth, nodes, millis, principalVariation, false);
+    }
+
+    private SearchResult(int bestMove, int score, int depth, long nodes, long millis, int[] principalVariation,
+                         boolean fromBook) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.principalVariation = principalVariation.clone();
+        this.fromBook = fromBook;
+    }
+
+    // A move played from an opening book: not searched, so no score or depth
+    static SearchResult bookMove(int move) {
+        return new SearchResult(move, 0, 0, 0, 0, new int[] {move}, true);
+    }
+
+    /**
+     * @return the best move, or null if the side to move has no legal move
+     */
+    public ChessMove getBestMove() {
+        return bestMove == 0 ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    /**
+     * @return the best move as a {@link PackedMove}, or 0 if there is none
+     */
+    public int getPackedBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return True if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return the deepest iteration that completed
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the expected line of play, starting with the best move
+     */
+    public List<ChessMove> getPrincipalVariation() {
+        List<ChessMove> moves = new ArrayList<>(principalVariation.length);
+        for (int move : principalVariation) {
+            moves.add(PackedMove.toChessMove(move));
+        }
+        return moves;
+    }
+
+    /**
+     * @return True if the move came from an opening book rather than a search
+     */
+    public boolean isFromBook() {
+        return fromBook;
+    }
+
+    // The same result with the node count of all threads that took part
+    SearchResult withNodes(long nodes) {
+        return new SearchResult(bestMove, score, depth, nodes, millis, principalVariation, fromBook);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pv = new StringBuilder();
+        for (int move : principalVariation) {
+            pv.append(pv.isEmpty() ? "" : " ").append(PackedMove.toString(move));
+        }
+        return "SearchResult{" + (fromBook ? "book, " : "") + "depth=" + depth + ", score=" + score + ", nodes=" + nodes
+                + ", millis=" + millis + ", pv=" + pv + '}';
+    }
+}
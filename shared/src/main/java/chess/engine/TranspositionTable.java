@@ -0,0 +1,199 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of search results keyed by {@link chess.ChessGame#positionKey()},
+ * safe to share between any number of searching threads without locks.
+ * <p>
+ * Entries live in a {@code long[]}, two longs each: the key XORed with the data, then the
+ * data. Writers store both longs with plain writes, so a concurrent reader may see one half
+ * of an old entry and one half of a new one; {@link #probe} recomputes {@code key ^ data}
+ * and treats anything that does not give back the probed key as a miss, so a torn entry is
+ * never used. Entries are grouped into buckets of {@value #BUCKET_SIZE} sharing a cache line.
+ * A store replaces the entry for the same position, else an empty entry or one left over
+ * from an earlier search, else the shallowest one.
+ * <p>
+ * Data layout: bits 0-14 the best move as a flag-free {@link chess.PackedMove}, 16-31 the
+ * score as a signed short, 32-39 the depth, 40-41 the {@link #EXACT}, {@link #LOWER} or
+ * {@link #UPPER} bound, and 48-55 the search generation that stored it.
+ */
+public final class TranspositionTable {
+
+    /** The score is exact. */
+    public static final int EXACT = 1;
+    /** The score is a lower bound: the search failed high. */
+    public static final int LOWER = 2;
+    /** The score is an upper bound: no move raised alpha. */
+    public static final int UPPER = 3;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = 16;
+    private static final int MOVE_MASK = (1 << 15) - 1;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * @param megabytes memory to use; rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("table size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * (1 << 20) / (ENTRY_BYTES * BUCKET_SIZE));
+        if (buckets * BUCKET_SIZE * 2 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("table size too large: " + megabytes + " MB");
+        }
+        table = new long[(int) buckets * BUCKET_SIZE * 2];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * @return the stored data for a position, or 0 if the table does not hold it
+     */
+    public long probe(long key) {
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Stores a search result for a position.
+     *
+     * @param move  the best move as a {@link chess.PackedMove}, or 0 if none is known
+     * @param score the score, between {@code Short.MIN_VALUE} and {@code Short.MAX_VALUE}
+     * @param depth the remaining depth searched, 0 to 255
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = bucket(key);
+        int current = generation;
+        int slot = -1;
+        int slotWorth = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key) {
+                // Keep a deeper result for the same position unless this one is exact
+                if (bound != EXACT && depth < depth(data) && generation(data) == current) {
+                    return;
+                }
+                write(i, key, move == 0 ? move(data) : move, score, depth, bound, current);
+                return;
+            }
+            // Empty and stale entries go first, then the shallowest
+            int worth = data == 0 ? -2 : generation(data) != current ? -1 : depth(data);
+            if (worth < slotWorth) {
+                slot = i;
+                slotWorth = worth;
+            }
+        }
+        if (slotWorth >= 0) {
+            collisions.increment();
+        }
+        write(slot, key, move, score, depth, bound, current);
+    }
+
+    /**
+     * Starts a new search generation, so entries from earlier searches are replaced first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the counters. Must not run while a search uses the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    /** @return the number of entries the table can hold */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /** @return probes that found their position */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return probes that did not find their position */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return stores that overwrote a current entry for another position */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * @return how full the table is, in entries per thousand, sampled from the first buckets
+     */
+    public int usagePermille() {
+        int sample = Math.min(table.length, 1000 * 2);
+        int used = 0;
+        for (int i = 0; i < sample; i += 2) {
+            if (table[i + 1] != 0 && generation(table[i + 1]) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / (sample / 2);
+    }
+
+    /** @return the best move stored in an entry's data, or 0 */
+    public static int move(long data) {
+        return (int) data & MOVE_MASK;
+    }
+
+    /** @return the score stored in an entry's data */
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    /** @return the depth stored in an entry's data */
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    /** @return the bound stored in an entry's data */
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    private void write(int slot, long key, int move, int score, int depth, int bound, int generation) {
+        long data = (move & MOVE_MASK)
+                | (long) (score & 0xFFFF) << 16
+                | (long) (depth & 0xFF) << 32
+                | (long) bound << 40
+                | (long) (generation & 0xFF) << 48;
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    // Index of the first long of the key's bucket
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * BUCKET_SIZE * 2;
+    }
+}
@@ -0,0 +1,18 @@
+package chess.pgn;
+
+import java.io.IOException;
+
+/**
+ * Indicates a game in a PGN stream could not be read. The reader has already skipped past the
+ * bad game, so reading can carry on with the next one.
+ */
+public class PgnException extends IOException {
+
+    public PgnException(String message) {
+        super(message);
+    }
+
+    public PgnException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,40 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One game read from PGN: its tag pairs in file order, the game with every mainline move
+ * played, and the game termination marker ({@code 1-0}, {@code 0-1}, {@code 1/2-1/2} or {@code *}).
+ */
+public class PgnGame {
+    private final Map<String, String> tags;
+    private final ChessGame game;
+    private final String result;
+
+    public PgnGame(Map<String, String> tags, ChessGame game, String result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.game = game;
+        this.result = result;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return the tag's value, or null if the game has no such tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public ChessGame getGame() {
+        return game;
+    }
+
+    public String getResult() {
+        return result;
+    }
+}
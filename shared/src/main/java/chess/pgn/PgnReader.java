@@ -0,0 +1,250 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.San;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads games one at a time from a PGN stream, so files of any size are read in constant memory.
+ * <p>
+ * Mainline moves are parsed with {@link San} and played with {@link ChessGame#doMove(int)},
+ * without going through {@code validMoves}. Comments, variations, NAGs and move numbers are
+ * skipped. A game with a bad move or broken tag is read to its end before {@link #next()}
+ * throws, so the following call starts cleanly on the next game.
+ */
+public class PgnReader implements Closeable {
+
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private boolean lineStart = true;
+
+    private final San san = new San();
+    private final StringBuilder token = new StringBuilder();
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next game, or null at the end of the stream
+     * @throws PgnException if the game could not be read; the stream is left at the next game
+     */
+    public PgnGame next() throws IOException {
+        skipBlankAndComments();
+        if (peek() == EOF) {
+            return null;
+        }
+        int startLine = line;
+        String error = null;
+        Map<String, String> tags = new LinkedHashMap<>();
+        while (peek() == '[') {
+            if (!readTag(tags) && error == null) {
+                error = "malformed tag";
+            }
+            skipBlankAndComments();
+        }
+
+        ChessGame game = null;
+        if (error == null) {
+            try {
+                String fen = tags.get("FEN");
+                game = fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+        }
+
+        String result = null;
+        while (result == null) {
+            skipBlank();
+            int c = peek();
+            if (c == EOF || (c == '[' && lineStart)) {
+                // No termination marker; the game ends where the next one starts
+                break;
+            }
+            read();
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readSymbol(EOF);
+            } else if (c != '.' && c != '!' && c != '?' && c != ')') {
+                String symbol = readSymbol(c);
+                if (isResult(symbol)) {
+                    result = symbol;
+                } else if (!isMoveNumber(symbol) && error == null && !symbol.isEmpty()) {
+                    try {
+                        game.doMove(san.parse(game, symbol));
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                    }
+                }
+            }
+        }
+
+        if (error != null) {
+            throw new PgnException("game at line " + startLine + ": " + error);
+        }
+        if (result == null) {
+            result = tags.getOrDefault("Result", "*");
+        }
+        return new PgnGame(tags, game, result);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // [Name "value"], with \" and \\ escapes in the value; false if the tag is malformed
+    private boolean readTag(Map<String, String> tags) throws IOException {
+        read();
+        skipSpaces();
+        token.setLength(0);
+        for (int c = peek(); c != EOF && (Character.isLetterOrDigit(c) || c == '_'); c = peek()) {
+            token.append((char) read());
+        }
+        String name = token.toString();
+        skipSpaces();
+        if (name.isEmpty() || peek() != '"') {
+            skipPast(']');
+            return false;
+        }
+        read();
+        token.setLength(0);
+        for (int c = read(); c != '"'; c = read()) {
+            if (c == EOF || c == '\n') {
+                return false;
+            }
+            token.append((char) (c == '\\' ? read() : c));
+        }
+        skipSpaces();
+        if (peek() != ']') {
+            skipPast(']');
+            return false;
+        }
+        read();
+        tags.put(name, token.toString());
+        return true;
+    }
+
+    // A move, move number or result; first is a character already read, or EOF if none was
+    private String readSymbol(int first) throws IOException {
+        token.setLength(0);
+        if (first != EOF) {
+            token.append((char) first);
+        }
+        for (int c = peek(); c != EOF && isSymbolChar(c); c = peek()) {
+            token.append((char) read());
+        }
+        // Drop annotation glyphs such as "!?" stuck to the move
+        while (peek() == '!' || peek() == '?') {
+            read();
+        }
+        return token.toString();
+    }
+
+    // Skips a recursive annotation variation, whose opening parenthesis was already read
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            switch (c) {
+                case EOF -> depth = 0;
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case '{' -> skipPast('}');
+                case ';' -> skipPast('\n');
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        for (int c = read(); c != EOF && c != end; c = read()) {
+            // skip
+        }
+    }
+
+    // Skips whitespace, plus "%" escape lines
+    private void skipBlank() throws IOException {
+        for (int c = peek(); c != EOF; c = peek()) {
+            if (c == '%' && lineStart) {
+                skipPast('\n');
+            } else if (Character.isWhitespace(c)) {
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Skips whitespace and comments outside of movetext, such as between games
+    private void skipBlankAndComments() throws IOException {
+        skipBlank();
+        while (peek() == ';' || peek() == '{') {
+            skipPast(read() == ';' ? '\n' : '}');
+            skipBlank();
+        }
+    }
+
+    private void skipSpaces() throws IOException {
+        while (peek() == ' ' || peek() == '\t') {
+            read();
+        }
+    }
+
+    private static boolean isSymbolChar(int c) {
+        return Character.isLetterOrDigit(c) || "_+#=:-/".indexOf(c) >= 0;
+    }
+
+    private static boolean isResult(String symbol) {
+        return symbol.equals("1-0") || symbol.equals("0-1") || symbol.equals("1/2-1/2") || symbol.equals("*");
+    }
+
+    private static boolean isMoveNumber(String symbol) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (!Character.isDigit(symbol.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            position++;
+            lineStart = c == '\n';
+            if (lineStart) {
+                line++;
+            }
+        }
+        return c;
+    }
+}
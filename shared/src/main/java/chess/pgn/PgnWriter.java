@@ -0,0 +1,130 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+import chess.San;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games as PGN, one after another, to a character stream.
+ * <p>
+ * Each game gets the seven-tag roster (missing values written as {@code ?}), then any other
+ * tags given, then {@code SetUp} and {@code FEN} when the game did not start from the standard
+ * position. The mainline is replayed from {@link ChessGame#getStartFen()} to produce SAN, and
+ * movetext lines are wrapped at {@value #LINE_WIDTH} columns.
+ */
+public class PgnWriter implements Closeable, Flushable {
+
+    private static final int LINE_WIDTH = 80;
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final String STANDARD_START = new ChessGame().toFen();
+
+    private final Writer out;
+    private final San san = new San();
+    private final StringBuilder line = new StringBuilder(LINE_WIDTH);
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a game with no tags besides the roster defaults.
+     */
+    public void write(ChessGame game) throws IOException {
+        write(game, Map.of());
+    }
+
+    /**
+     * Writes a game. The Result tag defaults to the outcome of the game as it stands.
+     *
+     * @param tags tag values by name, in the order to write any that are not in the roster
+     */
+    public void write(ChessGame game, Map<String, String> tags) throws IOException {
+        String result = tags.getOrDefault("Result", result(game));
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? result : tags.get(name);
+            writeTag(name, value != null ? value : name.equals("Date") ? "????.??.??" : "?");
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRoster(tag.getKey()) && !tag.getKey().equals("SetUp") && !tag.getKey().equals("FEN")) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        String startFen = game.getStartFen();
+        if (!startFen.equals(STANDARD_START)) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", startFen);
+        }
+        out.write('\n');
+
+        ChessGame replay = ChessGame.fromFen(startFen);
+        List<ChessMove> moves = game.getMoveHistory();
+        line.setLength(0);
+        for (int i = 0; i < moves.size(); i++) {
+            boolean white = replay.getTeamTurn() == ChessGame.TeamColor.WHITE;
+            int move = PackedMove.of(moves.get(i));
+            String text = san.format(replay, move);
+            // Keep move numbers on the same line as their move
+            writeToken(white || i == 0 ? replay.getFullmoveNumber() + (white ? ". " : "... ") + text : text);
+            replay.doMove(move);
+        }
+        writeToken(result);
+        out.write(line.append("\n\n").toString());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // The termination marker for the game as it stands
+    private static String result(ChessGame game) {
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        if (game.getResigned() != null) {
+            return game.getResigned() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+        }
+        if (game.isInCheckmate(turn)) {
+            return turn == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+        }
+        if (game.isInStalemate(turn) || game.isDraw()) {
+            return "1/2-1/2";
+        }
+        return "*";
+    }
+
+    private static boolean isRoster(String name) {
+        for (String roster : ROSTER) {
+            if (roster.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[' + name + " \"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]\n");
+    }
+
+    // Appends a token to the current movetext line, starting a new line when it would not fit
+    private void writeToken(String token) throws IOException {
+        if (!line.isEmpty() && line.length() + 1 + token.length() > LINE_WIDTH) {
+            out.write(line.append('\n').toString());
+            line.setLength(0);
+        }
+        if (!line.isEmpty()) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+}
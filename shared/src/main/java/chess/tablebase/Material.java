@@ -0,0 +1,207 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.ChessPiece;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The pieces of one table, such as {@code KRvKP}, and how positions with them are indexed.
+ * <p>
+ * Pieces are kept in slots: the white king, the black king, then the other white pieces and
+ * the other black pieces, each in {@code QRBNP} order. A position's index is the side to move,
+ * then the white king's square, then every other slot's square, six bits each. Without
+ * castling a position and its mirror image across the d/e file line are worth the same, so
+ * positions are mirrored as needed to keep the white king on files a to d, and the white
+ * king needs five bits rather than six.
+ * <p>
+ * A table is stored with the stronger side as white; {@link Tablebase} swaps the colors of
+ * positions where black is the stronger side.
+ */
+final class Material {
+
+    private static final String LETTERS = "QRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN
+    };
+    private static final int WHITE_KING = Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+    private static final int BLACK_KING = Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+
+    private final String name;
+    // Bitboards.pieceIndex of each slot
+    private final int[] pieces;
+    private final long key;
+
+    private Material(String white, String black) {
+        this.name = "K" + white + "vK" + black;
+        this.pieces = new int[2 + white.length() + black.length()];
+        pieces[0] = WHITE_KING;
+        pieces[1] = BLACK_KING;
+        int slot = 2;
+        for (char letter : white.toCharArray()) {
+            pieces[slot++] = Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, TYPES[LETTERS.indexOf(letter)]);
+        }
+        for (char letter : black.toCharArray()) {
+            pieces[slot++] = Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, TYPES[LETTERS.indexOf(letter)]);
+        }
+        this.key = key(pieces, pieces.length);
+    }
+
+    /**
+     * Parses a table name such as {@code KQvKR}. The stronger side must come first.
+     *
+     * @throws IllegalArgumentException if the name is malformed or not in canonical order
+     */
+    static Material parse(String name) {
+        int v = name.indexOf('v');
+        if (v < 1 || name.charAt(0) != 'K' || v + 1 >= name.length() || name.charAt(v + 1) != 'K') {
+            throw new IllegalArgumentException("invalid table name: " + name);
+        }
+        String white = name.substring(1, v);
+        String black = name.substring(v + 2);
+        if (!isSorted(white) || !isSorted(black) || compareSides(white, black) < 0) {
+            throw new IllegalArgumentException("invalid table name: " + name);
+        }
+        return new Material(white, black);
+    }
+
+    /**
+     * @return every table with the given number of pieces, kings included, pawnless tables
+     * first, so that the tables a capture or promotion leads to come before the table itself
+     */
+    static List<Material> all(int pieceCount) {
+        List<String> sides = new ArrayList<>();
+        addSides(sides, "", 0, pieceCount - 2);
+        List<Material> tables = new ArrayList<>();
+        for (String white : sides) {
+            for (String black : sides) {
+                if (white.length() + black.length() == pieceCount - 2 && compareSides(white, black) >= 0) {
+                    tables.add(new Material(white, black));
+                }
+            }
+        }
+        tables.sort(Comparator.comparingInt(Material::pawns));
+        return tables;
+    }
+
+    /**
+     * @return a key identifying a set of pieces (by {@link Bitboards#pieceIndex}) regardless
+     * of their order: a four-bit count per piece kind
+     */
+    static long key(int[] pieces, int count) {
+        long key = 0;
+        for (int i = 0; i < count; i++) {
+            key += 1L << (pieces[i] * 4);
+        }
+        return key;
+    }
+
+    /** @return the key of the same pieces with the colors swapped */
+    static long flipColors(long key) {
+        return (key & 0xFFFFFFL) << 24 | key >>> 24;
+    }
+
+    String name() {
+        return name;
+    }
+
+    long key() {
+        return key;
+    }
+
+    /** @return the number of pieces, kings included */
+    int pieceCount() {
+        return pieces.length;
+    }
+
+    /** @return the piece in a slot, by {@link Bitboards#pieceIndex} */
+    int piece(int slot) {
+        return pieces[slot];
+    }
+
+    int pawns() {
+        int pawns = 0;
+        for (int piece : pieces) {
+            if (piece % 6 == ChessPiece.PieceType.PAWN.ordinal()) {
+                pawns++;
+            }
+        }
+        return pawns;
+    }
+
+    /** @return the number of indexes, legal or not */
+    int size() {
+        return 1 << (6 * pieces.length);
+    }
+
+    /**
+     * @param squares the square of each slot; not changed
+     * @param stm     the side to move, 0 for white or 1 for black
+     */
+    int index(int[] squares, int stm) {
+        int mirror = (squares[0] & 7) >= 4 ? 7 : 0;
+        int king = squares[0] ^ mirror;
+        int index = stm << 5 | (king >>> 3) << 2 | king & 3;
+        for (int slot = 1; slot < pieces.length; slot++) {
+            index = index << 6 | squares[slot] ^ mirror;
+        }
+        return index;
+    }
+
+    /**
+     * Fills in the square of each slot for an index.
+     *
+     * @return the side to move, 0 for white or 1 for black
+     */
+    int decode(int index, int[] squares) {
+        for (int slot = pieces.length - 1; slot >= 1; slot--) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = (index & 31) >>> 2 << 3 | index & 3;
+        return index >>> 5;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Adds every sorted side of up to the given number of pieces, each piece no stronger than the last
+    private static void addSides(List<String> sides, String side, int from, int remaining) {
+        sides.add(side);
+        if (remaining > 0) {
+            for (int i = from; i < LETTERS.length(); i++) {
+                addSides(sides, side + LETTERS.charAt(i), i, remaining - 1);
+            }
+        }
+    }
+
+    private static boolean isSorted(String side) {
+        int last = 0;
+        for (char letter : side.toCharArray()) {
+            int order = LETTERS.indexOf(letter);
+            if (order < last) {
+                return false;
+            }
+            last = order;
+        }
+        return true;
+    }
+
+    // Positive if the first side is stronger: more pieces, else the stronger piece at the first difference
+    private static int compareSides(String a, String b) {
+        if (a.length() != b.length()) {
+            return a.length() - b.length();
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return LETTERS.indexOf(b.charAt(i)) - LETTERS.indexOf(a.charAt(i));
+            }
+        }
+        return 0;
+    }
+}
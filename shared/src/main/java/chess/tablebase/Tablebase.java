@@ -0,0 +1,219 @@
+package chess.tablebase;
+
+import chess.Attacks;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveGenerator;
+import chess.MoveList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Win/draw/loss endgame tables for positions with few pieces, as written by
+ * {@link TablebaseGenerator}.
+ * <p>
+ * Each table is a file named after its pieces, such as {@code KRvKP.wdl}, holding two bits
+ * per position index (see {@link Material}): 1 for a draw, 2 for a win and 3 for a loss for
+ * the side to move, 0 for an index that is not a legal position. Files are memory-mapped
+ * read-only, so probing a position costs one lookup in a small map and one byte read.
+ * A tablebase may be shared between threads.
+ * <p>
+ * Positions with castling rights are never in the tables. Positions where an en-passant
+ * capture is possible are probed by looking one move ahead.
+ */
+public final class Tablebase {
+
+    static final String EXTENSION = ".wdl";
+
+    // Values stored per position
+    static final int ILLEGAL = 0;
+    static final int DRAW = 1;
+    static final int WIN = 2;
+    static final int LOSS = 3;
+
+    private static final Wdl[] VALUES = {null, Wdl.DRAW, Wdl.WIN, Wdl.LOSS};
+
+    // Tables by Material.key
+    private final Map<Long, Table> tables = new HashMap<>();
+    private int maxPieces = 2;
+
+    /**
+     * Maps every table file in a directory.
+     *
+     * @throws IOException if a table cannot be read or does not have the expected size
+     */
+    public Tablebase(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Material material;
+                try {
+                    material = Material.parse(name.substring(0, name.length() - EXTENSION.length()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("not a tablebase file: " + file, e);
+                }
+                add(material, map(file, material));
+            }
+        }
+    }
+
+    /**
+     * @return the most pieces, kings included, of any position the tables cover; 2 if there
+     * are no tables, as bare kings are always drawn
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the number of tables
+     */
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    /**
+     * Looks up a position. The game itself is not changed.
+     *
+     * @return the value for the side to move, or null if no table covers the position
+     */
+    public Wdl probe(ChessGame game) {
+        if (game.hasCastlingRights()) {
+            return null;
+        }
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupancy();
+        int count = Bitboards.count(occupied);
+        if (count > maxPieces) {
+            return null;
+        }
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        ChessGame.TeamColor them = turn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int enPassant = game.getEnPassantSquare();
+        if (enPassant >= 0
+                && (Attacks.pawn(them, enPassant) & board.getBitboard(turn, ChessPiece.PieceType.PAWN)) != 0) {
+            return probeMoves(game);
+        }
+        int[] pieces = new int[count];
+        int[] squares = new int[count];
+        int i = 0;
+        for (long rest = occupied; rest != 0; rest = Bitboards.dropFirst(rest)) {
+            int square = Bitboards.first(rest);
+            ChessPiece piece = board.getPiece(square);
+            pieces[i] = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            squares[i++] = square;
+        }
+        return VALUES[value(pieces, squares, count, turn.ordinal())];
+    }
+
+    /**
+     * Looks up a position given as pieces on squares, in any order, and the side to move.
+     *
+     * @return {@link #DRAW}, {@link #WIN} or {@link #LOSS} for the side to move, or
+     * {@link #ILLEGAL} if no table covers the position or it is not legal
+     */
+    int value(int[] pieces, int[] squares, int count, int stm) {
+        if (count == 2) {
+            return DRAW;
+        }
+        long key = Material.key(pieces, count);
+        Table table = tables.get(key);
+        boolean flip = false;
+        if (table == null) {
+            table = tables.get(Material.flipColors(key));
+            flip = true;
+            if (table == null) {
+                return ILLEGAL;
+            }
+        }
+        // Give each slot of the table the square of a matching piece not used yet
+        Material material = table.material;
+        int[] slots = new int[count];
+        int used = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int want = material.piece(slot);
+            for (int i = 0; i < count; i++) {
+                int piece = flip ? (pieces[i] + 6) % 12 : pieces[i];
+                if (piece == want && (used & 1 << i) == 0) {
+                    used |= 1 << i;
+                    slots[slot] = flip ? squares[i] ^ 56 : squares[i];
+                    break;
+                }
+            }
+        }
+        return table.get(material.index(slots, flip ? 1 - stm : stm));
+    }
+
+    /** @return True if the tablebase has the table for a material */
+    boolean contains(Material material) {
+        return tables.containsKey(material.key());
+    }
+
+    void add(Material material, ByteBuffer values) {
+        tables.put(material.key(), new Table(material, values));
+        maxPieces = Math.max(maxPieces, material.pieceCount());
+    }
+
+    /**
+     * Maps a table file read-only, checking it has two bits for every index of the material.
+     */
+    static ByteBuffer map(Path file, Material material) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != material.size() / 4) {
+                throw new IOException("wrong size for " + material + " table: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // The best value over every move, for a position the tables do not hold directly
+    private Wdl probeMoves(ChessGame position) {
+        ChessGame game = new ChessGame(position);
+        MoveList moves = new MoveList();
+        MoveGenerator generator = new MoveGenerator();
+        generator.generate(game, moves);
+        if (moves.isEmpty()) {
+            return generator.checkers() != 0 ? Wdl.LOSS : Wdl.DRAW;
+        }
+        Wdl best = Wdl.LOSS;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            Wdl reply = probe(game);
+            game.undoMove();
+            if (reply == null) {
+                return null;
+            }
+            if (reply == Wdl.LOSS) {
+                return Wdl.WIN;
+            }
+            if (reply == Wdl.DRAW) {
+                best = Wdl.DRAW;
+            }
+        }
+        return best;
+    }
+
+    private static final class Table {
+        private final Material material;
+        private final ByteBuffer values;
+
+        Table(Material material, ByteBuffer values) {
+            this.material = material;
+            this.values = values;
+        }
+
+        int get(int index) {
+            return values.get(index >>> 2) >>> ((index & 3) << 1) & 3;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package chess.tablebase;
+
+import chess.Attacks;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds {@link Tablebase} files by retrograde analysis.
+ * <p>
+ * For each table, every index is first set up on a board and its legal moves generated with
+ * the {@link MoveGenerator}: checkmates and stalemates are decided at once, as is any move
+ * that captures or promotes, which leads into a smaller or earlier table. What is left is a
+ * count of the moves that stay in the table. Then the decided positions are worked
+ * backwards a ply at a time: un-moving a piece from a lost position gives positions that are
+ * won, and un-moving from a won position takes one move off the count of each position it
+ * came from, which is lost once no move is left that does not lose. Whatever is undecided
+ * when no new positions turn up is a draw.
+ * <p>
+ * Tables are built in an order where every table a capture or promotion leads to already
+ * exists. A double pawn push that can be taken en passant does not lead to the table
+ * position it leaves behind, as that has no en-passant square; the capture leads into a
+ * smaller table and is valued when the push is first seen. If the capture wins for the
+ * opponent the push is a losing move, and if it draws the push can at best draw; either way
+ * the push is not un-moved through. This needs at most one pawn a side, which holds for
+ * tables of up to four pieces.
+ */
+public final class TablebaseGenerator {
+
+    // Generation states beyond the stored values: not decided yet, and not a legal position
+    private static final byte UNKNOWN = 0;
+    private static final byte INVALID = 4;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private final Path directory;
+    private final Tablebase tablebase;
+
+    private final ChessGame game = ChessGame.fromFen("8/8/8/8/8/8/8/8 w - - 0 1");
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+    private final MoveList replies = new MoveList();
+
+    /**
+     * Creates a generator writing tables to a directory, which is created if need be. Tables
+     * already in it are kept and used to build the others.
+     */
+    public TablebaseGenerator(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.tablebase = new Tablebase(directory);
+    }
+
+    /**
+     * Builds every table of three up to the given number of pieces, kings included, that the
+     * directory does not have yet.
+     *
+     * @return the names of the tables built
+     */
+    public List<String> generate(int maxPieces) throws IOException {
+        if (maxPieces < 3 || maxPieces > 4) {
+            throw new IllegalArgumentException("tables are built for 3 or 4 pieces, not " + maxPieces);
+        }
+        List<String> built = new ArrayList<>();
+        for (int pieces = 3; pieces <= maxPieces; pieces++) {
+            for (Material material : Material.all(pieces)) {
+                if (!tablebase.contains(material)) {
+                    generate(material);
+                    built.add(material.name());
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Builds tables from the command line: a directory and optionally the most pieces (4).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: TablebaseGenerator <directory> [max pieces]");
+            System.exit(2);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]));
+        long start = System.nanoTime();
+        List<String> built = generator.generate(args.length > 1 ? Integer.parseInt(args[1]) : 4);
+        System.out.println("Built " + built.size() + " tables in "
+                + (System.nanoTime() - start) / 1_000_000_000 + " s: " + built);
+    }
+
+    private void generate(Material material) throws IOException {
+        int size = material.size();
+        byte[] values = new byte[size];
+        byte[] remaining = new byte[size];
+        long[] frontier = new long[(size + 63) >>> 6];
+        // Positions whose double push loses, or at best draws, to an en-passant capture
+        long[] pushLoses = new long[frontier.length];
+        long[] pushDraws = new long[frontier.length];
+        setUp(material, values, remaining, frontier, pushLoses, pushDraws);
+        long[] next = new long[frontier.length];
+        while (retreat(material, values, remaining, frontier, next, pushLoses, pushDraws)) {
+            long[] done = frontier;
+            frontier = next;
+            next = done;
+            Arrays.fill(next, 0);
+        }
+        write(material, values);
+    }
+
+    // Decides what one ply of moves can, and counts the remaining moves of everything else
+    private void setUp(Material material, byte[] values, byte[] remaining, long[] frontier, long[] pushLoses,
+                       long[] pushDraws) {
+        int count = material.pieceCount();
+        int[] squares = new int[count];
+        int[] placed = new int[count];
+        Arrays.fill(placed, -1);
+        int[] childPieces = new int[count];
+        int[] childSquares = new int[count];
+        ChessBoard board = game.getBoard();
+        // Clear away the last table's pieces
+        for (int square = 0; square < 64; square++) {
+            board.addPiece(Bitboards.position(square), null);
+        }
+        for (int index = 0; index < material.size(); index++) {
+            int stm = material.decode(index, squares);
+            if (!isPlausible(material, squares)) {
+                values[index] = INVALID;
+                continue;
+            }
+            place(board, material, squares, placed);
+            ChessGame.TeamColor us = COLORS[stm];
+            ChessGame.TeamColor them = COLORS[1 - stm];
+            if (board.isSquareAttacked(board.getKingSquare(them), us)) {
+                values[index] = INVALID;
+                continue;
+            }
+            game.setTeamTurn(us);
+            moves.clear();
+            generator.generate(game, moves);
+            if (moves.isEmpty()) {
+                values[index] = (byte) (generator.checkers() != 0 ? Tablebase.LOSS : Tablebase.DRAW);
+                if (values[index] == Tablebase.LOSS) {
+                    frontier[index >>> 6] |= 1L << index;
+                }
+                continue;
+            }
+
+            int inTable = 0;
+            boolean drawn = false;
+            boolean won = false;
+            for (int i = 0; i < moves.size() && !won; i++) {
+                int move = moves.get(i);
+                if ((move & PackedMove.DOUBLE_PUSH) != 0) {
+                    int capture = enPassantValue(move, us);
+                    if (capture == Tablebase.WIN) {
+                        // Taken en passant at once: a losing move, like a capture that loses
+                        pushLoses[index >>> 6] |= 1L << index;
+                        continue;
+                    }
+                    if (capture == Tablebase.DRAW) {
+                        pushDraws[index >>> 6] |= 1L << index;
+                    }
+                }
+                if (!PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                    inTable++;
+                    continue;
+                }
+                // Captures and promotions lead into another table
+                int mover = slotOn(squares, count, PackedMove.from(move));
+                int childCount = 0;
+                for (int slot = 0; slot < count; slot++) {
+                    if (slot != mover && squares[slot] == PackedMove.to(move)) {
+                        continue;
+                    }
+                    childPieces[childCount] = material.piece(slot);
+                    childSquares[childCount] = squares[slot];
+                    if (slot == mover) {
+                        childSquares[childCount] = PackedMove.to(move);
+                        if (PackedMove.isPromotion(move)) {
+                            childPieces[childCount] = Bitboards.pieceIndex(us, PackedMove.promotion(move));
+                        }
+                    }
+                    childCount++;
+                }
+                int reply = tablebase.value(childPieces, childSquares, childCount, 1 - stm);
+                if (reply == Tablebase.ILLEGAL) {
+                    throw new IllegalStateException("no table for a capture or promotion out of " + material);
+                }
+                won = reply == Tablebase.LOSS;
+                drawn |= reply == Tablebase.DRAW;
+            }
+            if (won) {
+                values[index] = Tablebase.WIN;
+                frontier[index >>> 6] |= 1L << index;
+            } else if (inTable == 0) {
+                values[index] = (byte) (drawn ? Tablebase.DRAW : Tablebase.LOSS);
+                if (!drawn) {
+                    frontier[index >>> 6] |= 1L << index;
+                }
+            } else {
+                // A drawing way out keeps the count from ever reaching zero
+                remaining[index] = (byte) (inTable + (drawn ? 1 : 0));
+            }
+        }
+    }
+
+    // The best the opponent gets by taking a double push en passant: WIN, DRAW or LOSS for them,
+    // or ILLEGAL if they cannot take it
+    private int enPassantValue(int push, ChessGame.TeamColor us) {
+        game.doMove(push);
+        replies.clear();
+        generator.generate(game, replies);
+        int best = Tablebase.ILLEGAL;
+        for (int i = 0; i < replies.size(); i++) {
+            int reply = replies.get(i);
+            if ((reply & PackedMove.EN_PASSANT) == 0) {
+                continue;
+            }
+            game.doMove(reply);
+            int value = probeAfterCapture(us);
+            game.undoMove();
+            // Our loss is their win
+            int theirs = value == Tablebase.LOSS ? Tablebase.WIN : value == Tablebase.WIN ? Tablebase.LOSS : value;
+            if (best == Tablebase.ILLEGAL || rank(theirs) > rank(best)) {
+                best = theirs;
+            }
+        }
+        game.undoMove();
+        return best;
+    }
+
+    // Looks up the game's position, with us to move, in the smaller tables already built
+    private int probeAfterCapture(ChessGame.TeamColor us) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupancy();
+        int count = Bitboards.count(occupied);
+        int[] pieces = new int[count];
+        int[] squares = new int[count];
+        int i = 0;
+        for (long rest = occupied; rest != 0; rest = Bitboards.dropFirst(rest)) {
+            int square = Bitboards.first(rest);
+            ChessPiece piece = board.getPiece(square);
+            pieces[i] = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            squares[i++] = square;
+        }
+        int value = tablebase.value(pieces, squares, count, us.ordinal());
+        if (value == Tablebase.ILLEGAL) {
+            throw new IllegalStateException("no table for an en-passant capture");
+        }
+        return value;
+    }
+
+    private static int rank(int value) {
+        return value == Tablebase.WIN ? 2 : value == Tablebase.DRAW ? 1 : 0;
+    }
+
+    // Decides the positions one ply back from the frontier; false if the frontier was empty
+    private static boolean retreat(Material material, byte[] values, byte[] remaining, long[] frontier, long[] next,
+                                   long[] pushLoses, long[] pushDraws) {
+        int count = material.pieceCount();
+        int[] squares = new int[count];
+        boolean any = false;
+        for (int word = 0; word < frontier.length; word++) {
+            for (long bits = frontier[word]; bits != 0; bits = Bitboards.dropFirst(bits)) {
+                any = true;
+                int index = word << 6 | Bitboards.first(bits);
+                boolean lost = values[index] == Tablebase.LOSS;
+                int mover = 1 - material.decode(index, squares);
+                long occupied = 0;
+                for (int square : squares) {
+                    occupied |= Bitboards.bit(square);
+                }
+                for (int slot = 0; slot < count; slot++) {
+                    int piece = material.piece(slot);
+                    if (piece / 6 != mover) {
+                        continue;
+                    }
+                    int square = squares[slot];
+                    for (long from = unmoves(piece, square, occupied); from != 0; from = Bitboards.dropFirst(from)) {
+                        squares[slot] = Bitboards.first(from);
+                        int previous = material.index(squares, mover);
+                        squares[slot] = square;
+                        if (values[previous] != UNKNOWN) {
+                            continue;
+                        }
+                        // A double push taken en passant was valued in setUp, not by this position
+                        if (Math.abs(square - Bitboards.first(from)) == 16
+                                && piece % 6 == ChessPiece.PieceType.PAWN.ordinal()
+                                && ((pushLoses[previous >>> 6] & 1L << previous) != 0
+                                || (lost && (pushDraws[previous >>> 6] & 1L << previous) != 0))) {
+                            continue;
+                        }
+                        if (lost) {
+                            values[previous] = Tablebase.WIN;
+                        } else if (--remaining[previous] == 0) {
+                            values[previous] = Tablebase.LOSS;
+                        } else {
+                            continue;
+                        }
+                        next[previous >>> 6] |= 1L << previous;
+                    }
+                }
+            }
+        }
+        return any;
+    }
+
+    // Squares a piece (by Bitboards.pieceIndex) now on a square could have come from without capturing
+    private static long unmoves(int piece, int square, long occupied) {
+        ChessPiece.PieceType type = TYPES[piece % 6];
+        if (type != ChessPiece.PieceType.PAWN) {
+            return Attacks.of(type, square, occupied) & ~occupied;
+        }
+        boolean white = piece < 6;
+        int back = white ? square - 8 : square + 8;
+        if (back < 8 || back >= 56 || (occupied & Bitboards.bit(back)) != 0) {
+            return 0;
+        }
+        long from = Bitboards.bit(back);
+        int doubleBack = white ? square - 16 : square + 16;
+        if (Bitboards.row(square) == (white ? 4 : 5) && (occupied & Bitboards.bit(doubleBack)) == 0) {
+            from |= Bitboards.bit(doubleBack);
+        }
+        return from;
+    }
+
+    // No two pieces on one square and no pawn on the first or last rank
+    private static boolean isPlausible(Material material, int[] squares) {
+        long occupied = 0;
+        for (int slot = 0; slot < squares.length; slot++) {
+            long bit = Bitboards.bit(squares[slot]);
+            if ((occupied & bit) != 0) {
+                return false;
+            }
+            occupied |= bit;
+            if (material.piece(slot) % 6 == ChessPiece.PieceType.PAWN.ordinal()
+                    && (bit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Moves the board's pieces from the squares of the last position set up to the given ones
+    private static void place(ChessBoard board, Material material, int[] squares, int[] placed) {
+        for (int slot = 0; slot < squares.length; slot++) {
+            if (placed[slot] != squares[slot] && placed[slot] >= 0) {
+                board.addPiece(Bitboards.position(placed[slot]), null);
+            }
+        }
+        for (int slot = 0; slot < squares.length; slot++) {
+            if (placed[slot] != squares[slot]) {
+                int piece = material.piece(slot);
+                board.addPiece(Bitboards.position(squares[slot]), ChessPiece.of(COLORS[piece / 6], TYPES[piece % 6]));
+                placed[slot] = squares[slot];
+            }
+        }
+    }
+
+    private static int slotOn(int[] squares, int count, int square) {
+        for (int slot = 0; slot < count; slot++) {
+            if (squares[slot] == square) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("no piece on square " + square);
+    }
+
+    // Packs the values two bits each, writes them under a temporary name, then maps the finished file
+    private void write(Material material, byte[] values) throws IOException {
+        byte[] packed = new byte[values.length / 4];
+        for (int index = 0; index < values.length; index++) {
+            int value = values[index] == INVALID ? Tablebase.ILLEGAL
+                    : values[index] == UNKNOWN ? Tablebase.DRAW : values[index];
+            packed[index >>> 2] |= (byte) (value << ((index & 3) << 1));
+        }
+        Path file = directory.resolve(material.name() + Tablebase.EXTENSION);
+        Path partial = directory.resolve(material.name() + Tablebase.EXTENSION + ".tmp");
+        Files.write(partial, packed);
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ByteBuffer mapped = Tablebase.map(file, material);
+        tablebase.add(material, mapped);
+    }
+}
@@ -0,0 +1,18 @@
+package chess.tablebase;
+
+/**
+ * Game-theoretic value of a position with perfect play, from the point of view of the side
+ * to move. The fifty-move rule is not taken into account.
+ */
+public enum Wdl {
+    WIN, DRAW, LOSS;
+
+    /** @return the value for the other side */
+    public Wdl negate() {
+        return switch (this) {
+            case WIN -> LOSS;
+            case DRAW -> DRAW;
+            case LOSS -> WIN;
+        };
+    }
+}
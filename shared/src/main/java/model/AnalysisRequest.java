@@ -0,0 +1,41 @@
+package model;
+
+import java.util.List;
+
+public class AnalysisRequest {
+    // Positions to analyze, as FEN; or the games of a PGN text, every position of each mainline
+    private List<String> fens;
+    private String pgn;
+    // Limits for each position; 0 leaves the server's default
+    private int depth;
+    private long nodes;
+    private long millis;
+
+    public AnalysisRequest(List<String> fens, String pgn, int depth, long nodes, long millis) {
+        this.fens = fens;
+        this.pgn = pgn;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    public List<String> getFens() {
+        return fens;
+    }
+
+    public String getPgn() {
+        return pgn;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
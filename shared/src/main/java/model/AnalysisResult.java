@@ -0,0 +1,79 @@
+package model;
+
+import java.util.List;
+
+public class AnalysisResult {
+    // Position of this result in the batch, counting from 0
+    private int index;
+    // Game number (from 1) and ply (0 for the start) for positions taken from PGN; null for FEN
+    private Integer game;
+    private Integer ply;
+    private String fen;
+    // Best move in coordinate notation such as e2e4, or null if the side to move has none
+    private String bestMove;
+    private int score;
+    private boolean mate;
+    private int depth;
+    private long nodes;
+    private long millis;
+    private List<String> pv;
+
+    public AnalysisResult(int index, Integer game, Integer ply, String fen, String bestMove, int score,
+                          boolean mate, int depth, long nodes, long millis, List<String> pv) {
+        this.index = index;
+        this.game = game;
+        this.ply = ply;
+        this.fen = fen;
+        this.bestMove = bestMove;
+        this.score = score;
+        this.mate = mate;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Integer getGame() {
+        return game;
+    }
+
+    public Integer getPly() {
+        return ply;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMate() {
+        return mate;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public List<String> getPv() {
+        return pv;
+    }
+}
@@ -0,0 +1,16 @@
+package model;
+
+import chess.engine.BookMove;
+import java.util.List;
+
+public class BookMovesResponse {
+    private List<BookMove> moves;
+
+    public BookMovesResponse(List<BookMove> moves) {
+        this.moves = moves;
+    }
+
+    public List<BookMove> getMoves() {
+        return moves;
+    }
+}
@@ -0,0 +1,17 @@
+package serialization;
+
+import chess.ChessJson;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The one Gson instance the server and client use for HTTP bodies, WebSocket messages and
+ * stored games. Gson is thread-safe, so it is built once with the chess adapters registered.
+ */
+public final class Serializer {
+
+    public static final Gson GSON = ChessJson.registerTypeAdapters(new GsonBuilder()).create();
+
+    private Serializer() {
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class AttacksTest {
+
+    @Test
+    public void sliderLookupMatchesRayWalk() {
+        Random random = new Random(240);
+        for (int i = 0; i < 2000; i++) {
+            long occupancy = random.nextLong() & random.nextLong();
+            for (int square = 0; square < 64; square++) {
+                assertEquals(Attacks.rookSlow(square, occupancy), Attacks.rook(square, occupancy));
+                assertEquals(Attacks.bishopSlow(square, occupancy), Attacks.bishop(square, occupancy));
+            }
+        }
+    }
+
+    @Test
+    public void emptyBoardAttackCounts() {
+        int d4 = Bitboards.square(4, 4);
+        assertEquals(14, Bitboards.count(Attacks.rook(d4, 0)));
+        assertEquals(13, Bitboards.count(Attacks.bishop(d4, 0)));
+        assertEquals(8, Bitboards.count(Attacks.knight(d4)));
+        assertEquals(8, Bitboards.count(Attacks.king(d4)));
+    }
+
+    @Test
+    public void cornerAndEdgeStepAttacks() {
+        int a1 = Bitboards.square(1, 1);
+        assertEquals(2, Bitboards.count(Attacks.knight(a1)));
+        assertEquals(3, Bitboards.count(Attacks.king(a1)));
+        assertEquals(Bitboards.bit(Bitboards.square(2, 2)), Attacks.pawn(ChessGame.TeamColor.WHITE, a1));
+        assertEquals(0, Attacks.pawn(ChessGame.TeamColor.BLACK, a1));
+    }
+}
@@ -0,0 +1,122 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+public class ChessGameDrawTest {
+
+    @Test
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            shuffleKnights(game);
+            assertEquals(i == 1, game.isThreefoldRepetition());
+        }
+        assertTrue(game.isGameOver());
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(move("g1f3")));
+    }
+
+    @Test
+    public void repetitionSurvivesJson() throws InvalidMoveException {
+        Gson gson = new Gson();
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game = gson.fromJson(gson.toJson(game), ChessGame.class);
+        shuffleKnights(game);
+        assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void captureResetsRepetitionWindow() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        for (String move : new String[]{"e2e4", "d7d5", "e4d5"}) {
+            game.makeMove(move(move));
+        }
+        assertEquals(0, game.getHalfmoveClock());
+        game.makeMove(move("g8f6"));
+        assertEquals(1, game.getHalfmoveClock());
+        assertFalse(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void fiftyMoveRule() {
+        ChessGame game = new ChessGame();
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int ply = 0; ply < 100; ply++) {
+            assertFalse(game.isFiftyMoveRule());
+            game.doMove(move(shuffle[ply % 4]));
+        }
+        assertEquals(100, game.getHalfmoveClock());
+        assertTrue(game.isFiftyMoveRule());
+        game.undoMove();
+        assertEquals(99, game.getHalfmoveClock());
+        assertFalse(game.isFiftyMoveRule());
+        game.doMove(move("e7e5"));
+        assertEquals(0, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void insufficientMaterial() {
+        assertTrue(drawn("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|N| | |
+                """));
+        // Bishops on c1 and f8 share dark squares
+        assertTrue(drawn("""
+                | | | | |k|b| | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |B| |K| | | |
+                """));
+        assertFalse(drawn("""
+                | | | | |k| |b| |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |B| |K| | | |
+                """));
+        assertFalse(drawn("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|N|N| |
+                """));
+        assertFalse(new ChessGame().isInsufficientMaterial());
+    }
+
+    private static boolean drawn(String board) {
+        return new ChessGame(TestUtilities.loadBoard(board), ChessGame.TeamColor.WHITE).isInsufficientMaterial();
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        for (String move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8"}) {
+            game.makeMove(move(move));
+        }
+    }
+
+    private static ChessMove move(String move) {
+        return new ChessMove(ChessPosition.of(move.charAt(1) - '0', move.charAt(0) - 'a' + 1),
+                ChessPosition.of(move.charAt(3) - '0', move.charAt(2) - 'a' + 1), null);
+    }
+}
@@ -0,0 +1,129 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+/**
+ * Counts leaf nodes of the legal move tree for well-known positions and compares them with
+ * published perft results. Any move generation, make or undo bug shows up as a wrong count.
+ */
+public class ChessGamePerftTest {
+
+    private static final String KIWIPETE = """
+            |r| | | |k| | |r|
+            |p| |p|p|q|p|b| |
+            |b|n| | |p|n|p| |
+            | | | |P|N| | | |
+            | |p| | |P| | | |
+            | | |N| | |Q| |p|
+            |P|P|P|B|B|P|P|P|
+            |R| | | |K| | |R|
+            """;
+
+    private static final String ROOK_ENDGAME = """
+            | | | | | | | | |
+            | | |p| | | | | |
+            | | | |p| | | | |
+            |K|P| | | | | |r|
+            | |R| | | |p| |k|
+            | | | | | | | | |
+            | | | | |P| |P| |
+            | | | | | | | | |
+            """;
+
+    private static final String PROMOTIONS = """
+            |r| | | |k| | |r|
+            |P|p|p|p| |p|p|p|
+            | |b| | | |n|b|N|
+            |n|P| | | | | | |
+            |B|B|P| |P| | | |
+            |q| | | | |N| | |
+            |P|p| |P| | |P|P|
+            |R| | |Q| |R|K| |
+            """;
+
+    @Test
+    public void startingPosition() {
+        ChessGame game = new ChessGame();
+        assertEquals(20, perft(game, 1));
+        assertEquals(400, perft(game, 2));
+        assertEquals(8902, perft(game, 3));
+    }
+
+    @Test
+    public void kiwipete() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(KIWIPETE), ChessGame.TeamColor.WHITE);
+        assertEquals(48, perft(game, 1));
+        assertEquals(2039, perft(game, 2));
+        assertEquals(97862, perft(game, 3));
+    }
+
+    @Test
+    public void rookEndgameWithEnPassant() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(ROOK_ENDGAME), ChessGame.TeamColor.WHITE);
+        assertEquals(14, perft(game, 1));
+        assertEquals(191, perft(game, 2));
+        assertEquals(2812, perft(game, 3));
+        assertEquals(43238, perft(game, 4));
+    }
+
+    @Test
+    public void promotions() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(PROMOTIONS), ChessGame.TeamColor.WHITE);
+        assertEquals(6, perft(game, 1));
+        assertEquals(264, perft(game, 2));
+        assertEquals(9467, perft(game, 3));
+    }
+
+    @Test
+    public void perftHarnessMatchesValidMoves() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(KIWIPETE), ChessGame.TeamColor.WHITE);
+        assertEquals(perft(game, 3), Perft.perft(game, 3));
+        assertEquals(4085603, Perft.perft(game, 4));
+    }
+
+    @Test
+    public void undoRestoresPosition() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(KIWIPETE), ChessGame.TeamColor.WHITE);
+        ChessBoard before = new ChessBoard(game.getBoard());
+        perft(game, 2);
+        assertEquals(before, game.getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    public void packedMovesCarryFlags() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(KIWIPETE), ChessGame.TeamColor.WHITE);
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, moves);
+        int captures = 0;
+        int castles = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            captures += PackedMove.isCapture(moves.get(i)) ? 1 : 0;
+            castles += (moves.get(i) & PackedMove.CASTLE) != 0 ? 1 : 0;
+        }
+        assertEquals(48, moves.size());
+        assertEquals(8, captures);
+        assertEquals(2, castles);
+        assertTrue(moves.contains(PackedMove.of(Bitboards.square(1, 5), Bitboards.square(1, 7), PackedMove.NONE)));
+        assertEquals("e1g1", PackedMove.toString(PackedMove.of(Bitboards.square(1, 5), Bitboards.square(1, 7), 0)));
+    }
+
+    static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        long own = game.getBoard().getOccupancy(game.getTeamTurn());
+        for (; own != 0; own = Bitboards.dropFirst(own)) {
+            for (ChessMove move : game.validMoves(Bitboards.position(Bitboards.first(own)))) {
+                game.doMove(move);
+                nodes += perft(game, depth - 1);
+                game.undoMove();
+            }
+        }
+        return nodes;
+    }
+}
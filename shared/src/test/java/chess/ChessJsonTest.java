@@ -0,0 +1,119 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+import serialization.Serializer;
+import websocket.commands.MakeMoveCommand;
+
+public class ChessJsonTest {
+
+    private static final Gson GSON = Serializer.GSON;
+
+    @Test
+    public void writesCompactForms() {
+        assertEquals("\"e4\"", GSON.toJson(ChessPosition.of(4, 5)));
+        assertEquals("\"n\"", GSON.toJson(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT)));
+        assertEquals("{\"startPosition\":\"e7\",\"endPosition\":\"e8\",\"promotionPiece\":\"QUEEN\"}",
+                GSON.toJson(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(8, 5), ChessPiece.PieceType.QUEEN)));
+        assertEquals("{\"fen\":\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1\"}",
+                GSON.toJson(new ChessGame()));
+    }
+
+    @Test
+    public void gameRoundTripsWithState() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8", "e2e4"}) {
+            game.makeMove(move(move));
+        }
+        game.setResigned(ChessGame.TeamColor.BLACK);
+
+        ChessGame copy = GSON.fromJson(GSON.toJson(game), ChessGame.class);
+        assertEquals(game, copy);
+        assertEquals(game.toFen(), copy.toFen());
+        assertEquals(ChessGame.TeamColor.BLACK, copy.getResigned());
+        assertTrue(copy.isGameOver());
+
+        GameData data = GSON.fromJson(GSON.toJson(new GameData(7, "a", null, "g", game)), GameData.class);
+        assertEquals(game.toFen(), data.getGame().toFen());
+    }
+
+    @Test
+    public void repetitionHistorySurvivesRoundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game = GSON.fromJson(GSON.toJson(game), ChessGame.class);
+        shuffleKnights(game);
+        assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void readsReflectiveJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String move : new String[]{"e2e4", "a7a6", "e4e5", "d7d5", "e1e2"}) {
+            game.makeMove(move(move));
+        }
+        String legacy = new Gson().toJson(game);
+        assertTrue(legacy.contains("\"squares\""));
+
+        ChessGame loaded = GSON.fromJson(legacy, ChessGame.class);
+        assertEquals(game.toFen(), loaded.toFen());
+        assertEquals(game.positionKey(), loaded.positionKey());
+    }
+
+    @Test
+    public void readsStoredRowsFromBeforeMoveCounters() {
+        // Layout written by reflective Gson before the halfmove clock and history existed
+        StringBuilder squares = new StringBuilder("[");
+        for (int row = 1; row <= 8; row++) {
+            squares.append(row > 1 ? "," : "").append("[");
+            for (int col = 1; col <= 8; col++) {
+                String piece = row == 1 && col == 5 ? "{\"pieceColor\":\"WHITE\",\"type\":\"KING\"}"
+                        : row == 8 && col == 5 ? "{\"pieceColor\":\"BLACK\",\"type\":\"KING\"}"
+                        : row == 4 && col == 4 ? "{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}" : "null";
+                squares.append(col > 1 ? "," : "").append(piece);
+            }
+            squares.append("]");
+        }
+        String json = "{\"board\":{\"squares\":" + squares + "]},\"teamTurn\":\"BLACK\",\"gameOver\":false,"
+                + "\"enPassantTarget\":{\"packed\":52},\"whiteKingMoved\":true,\"whiteKingRookMoved\":false,"
+                + "\"whiteQueenRookMoved\":false,\"blackKingMoved\":false,\"blackKingRookMoved\":true,"
+                + "\"blackQueenRookMoved\":true}";
+
+        ChessGame game = GSON.fromJson(json, ChessGame.class);
+        assertEquals("4k3/8/8/8/3P4/8/8/4K3 b - d3 0 1", game.toFen());
+        assertNull(game.getResigned());
+    }
+
+    @Test
+    public void readsReflectiveMoveCommand() {
+        MakeMoveCommand command = new MakeMoveCommand("token", 3, move("e2e4"));
+        String legacy = new Gson().toJson(command);
+        assertTrue(legacy.contains("\"packed\""));
+        assertEquals(move("e2e4"), GSON.fromJson(legacy, MakeMoveCommand.class).getMove());
+        assertEquals(move("e2e4"), GSON.fromJson(GSON.toJson(command), MakeMoveCommand.class).getMove());
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        assertThrows(JsonParseException.class, () -> GSON.fromJson("\"z9\"", ChessPosition.class));
+        assertThrows(JsonParseException.class, () -> GSON.fromJson("\"x\"", ChessPiece.class));
+        assertThrows(JsonParseException.class, () -> GSON.fromJson("\"8/8\"", ChessBoard.class));
+        assertThrows(JsonParseException.class, () -> GSON.fromJson("{\"fen\":\"nope\"}", ChessGame.class));
+        assertNull(GSON.fromJson("null", ChessGame.class));
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        for (String move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8"}) {
+            game.makeMove(move(move));
+        }
+    }
+
+    private static ChessMove move(String move) {
+        return new ChessMove(ChessPosition.of(move.charAt(1) - '0', move.charAt(0) - 'a' + 1),
+                ChessPosition.of(move.charAt(3) - '0', move.charAt(2) - 'a' + 1), null);
+    }
+}
@@ -0,0 +1,95 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class FenTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String[] POSITIONS = {
+            START,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+    };
+
+    @Test
+    public void startingPosition() {
+        assertEquals(START, new ChessGame().toFen());
+        assertEquals(new ChessGame(), ChessGame.fromFen(START));
+    }
+
+    @Test
+    public void roundTrips() {
+        for (String fen : POSITIONS) {
+            ChessGame game = ChessGame.fromFen(fen);
+            assertEquals(fen, game.toFen());
+            assertEquals(game.positionKey(), ChessGame.fromFen(game.toFen()).positionKey());
+        }
+    }
+
+    @Test
+    public void tracksMovesCountersAndRights() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(2, 5), null));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen());
+    }
+
+    @Test
+    public void setUpBoardOnlyGrantsRightsWithKingAndRookAtHome() {
+        // White's rooks are in their corners, but its king is not on e1
+        ChessBoard board = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R2K3R w - - 0 1").getBoard();
+        ChessGame game = new ChessGame(board, ChessGame.TeamColor.WHITE);
+        assertEquals("r3k2r/8/8/8/8/8/8/R2K3R w kq - 0 1", game.toFen());
+        assertEquals(ChessGame.fromFen(game.toFen()).positionKey(), game.positionKey());
+
+        ChessGame bare = new ChessGame(ChessGame.fromFen("3k4/8/8/8/8/8/8/R2K3R w - - 0 1").getBoard(),
+                ChessGame.TeamColor.WHITE);
+        assertFalse(bare.hasCastlingRights());
+    }
+
+    @Test
+    public void loadedPositionPlaysOn() {
+        // Black may take en passant only because the FEN says so
+        ChessGame game = ChessGame.fromFen("8/8/8/8/3pP3/8/8/k6K b - e3 0 1");
+        assertTrue(game.validMoves(ChessPosition.of(4, 4))
+                .contains(new ChessMove(ChessPosition.of(4, 4), ChessPosition.of(3, 5), null)));
+        assertEquals(97862, Perft.perft(ChessGame.fromFen(POSITIONS[1]), 3));
+    }
+
+    @Test
+    public void rejectsMalformedFen() {
+        String[] bad = {
+                null, "", "8/8/8 w - -",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+                START.replace(" w ", " x "),
+                START.replace("KQkq", "KQz"),
+                START.replace(" - ", " e4 "),
+                START.replace(" 0 1", " -1 1"),
+                START.replace(" 0 1", " 0 x"),
+        };
+        for (String fen : bad) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+
+    @Test
+    public void codecRoundTrips() {
+        for (String fen : POSITIONS) {
+            byte[] encoded = PositionCodec.encode(ChessGame.fromFen(fen));
+            assertTrue(encoded.length <= PositionCodec.MAX_BYTES);
+            assertEquals(fen, PositionCodec.decode(encoded).toFen());
+        }
+        assertEquals(30, PositionCodec.encode(new ChessGame()).length);
+        assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(new byte[3]));
+    }
+}
@@ -0,0 +1,42 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Positions and pieces are immutable, so the factories hand out one shared instance per value.
+ */
+public class FlyweightTest {
+
+    @Test
+    public void factoriesReturnSharedInstances() {
+        assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        assertSame(ChessPosition.of(4, 5), Bitboards.position(Bitboards.square(4, 5)));
+        assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        assertThrows(IllegalArgumentException.class, () -> ChessPosition.of(0, 1));
+    }
+
+    @Test
+    public void generatedMovesUseSharedPositions() {
+        ChessGame game = new ChessGame();
+        for (ChessMove move : game.validMoves(ChessPosition.of(2, 5))) {
+            assertSame(ChessPosition.of(2, 5), move.getStartPosition());
+            assertSame(ChessPosition.of(move.getEndPosition().getRow(), move.getEndPosition().getColumn()),
+                    move.getEndPosition());
+        }
+    }
+
+    @Test
+    public void deserializedBoardUsesSharedPieces() {
+        Gson gson = new Gson();
+        ChessGame game = gson.fromJson(gson.toJson(new ChessGame()), ChessGame.class);
+        ChessBoard board = game.getBoard();
+        assertEquals(new ChessGame().getBoard(), board);
+        assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                board.getPiece(ChessPosition.of(1, 5)));
+    }
+}
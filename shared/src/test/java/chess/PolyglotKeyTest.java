@@ -0,0 +1,43 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class PolyglotKeyTest {
+
+    @Test
+    public void startPositionMatchesPolyglot() {
+        assertEquals(0x463b96181691fc9cL, PolyglotKey.of(new ChessGame()));
+    }
+
+    // The sample keys published with the Polyglot book format
+    @Test
+    public void matchesPublishedKeys() {
+        assertEquals(0x823c9b50fd114196L, keyAfter("e2e4"));
+        assertEquals(0x0756b94461c50fb0L, keyAfter("e2e4", "d7d5"));
+        assertEquals(0x662fafb965db29d4L, keyAfter("e2e4", "d7d5", "e4e5"));
+        // f7f5 beside the pawn on e5: the en-passant file counts
+        assertEquals(0x22a48b5a8e47ff78L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5"));
+        // King moves lose castling rights
+        assertEquals(0x652a607ca3f242c1L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5", "e1e2"));
+        assertEquals(0x00fdd303c946bdd9L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"));
+        assertEquals(0x3c8123ea7b067637L, keyAfter("a2a4", "b7b5", "h2h4", "b5b4", "c2c4"));
+        assertEquals(0x5c3f9b829b279560L, keyAfter("a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3"));
+    }
+
+    @Test
+    public void enPassantFileNeedsACapturingPawn() {
+        // After e2e4 no black pawn can take on e3, so the key ignores the en-passant square
+        assertEquals(PolyglotKey.of(ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1")),
+                PolyglotKey.of(ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+    }
+
+    private static long keyAfter(String... moves) {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            game.doMove(PackedMove.parse(move));
+        }
+        return PolyglotKey.of(game);
+    }
+}
@@ -0,0 +1,106 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import serialization.Serializer;
+
+public class SanTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private final San san = new San();
+
+    @Test
+    public void formatsMoves() {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        assertEquals("O-O", format(game, "e1g1"));
+        assertEquals("O-O-O", format(game, "e1c1"));
+        assertEquals("Qxf6", format(game, "f3f6"));
+        assertEquals("Nxf7", format(game, "e5f7"));
+        assertEquals("dxe6", format(game, "d5e6"));
+        assertEquals("Bxa6", format(game, "e2a6"));
+        assertEquals("Qxh3", format(game, "f3h3"));
+
+        // Knights on b1 and f3 can both reach d2; rooks on a1 and a5 share a file
+        ChessGame ambiguous = ChessGame.fromFen("4k3/8/8/R7/8/5N2/8/RN5K w - - 0 1");
+        assertEquals("Nbd2", format(ambiguous, "b1d2"));
+        assertEquals("Nfd2", format(ambiguous, "f3d2"));
+        assertEquals("R1a3", format(ambiguous, "a1a3"));
+        assertEquals("R5a3", format(ambiguous, "a5a3"));
+
+        ChessGame promotion = ChessGame.fromFen("3r3k/4P3/8/8/8/8/8/K7 w - - 0 1");
+        assertEquals("e8=Q+", format(promotion, "e7e8q"));
+        assertEquals("exd8=N", format(promotion, "e7d8n"));
+
+        ChessGame mate = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", format(mate, "a1a8"));
+    }
+
+    @Test
+    public void parsesWhatItFormats() {
+        walk(ChessGame.fromFen(KIWIPETE), 2);
+        walk(ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"), 2);
+    }
+
+    @Test
+    public void parsesLooseNotation() {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        assertEquals("e1g1", PackedMove.toString(san.parse(game, "0-0")));
+        assertEquals("e5f7", PackedMove.toString(san.parse(game, "Ne5xf7!?")));
+        assertEquals("d5e6", PackedMove.toString(san.parse(game, "de6")));
+        ChessGame promotion = ChessGame.fromFen("3r3k/4P3/8/8/8/8/8/K7 w - - 0 1");
+        assertEquals("e7d8r", PackedMove.toString(san.parse(promotion, "exd8R")));
+
+        assertThrows(IllegalArgumentException.class, () -> san.parse(game, "Nd4"));
+        assertThrows(IllegalArgumentException.class, () -> san.parse(game, "e5"));
+        assertThrows(IllegalArgumentException.class, () -> san.parse(game, "Zz9"));
+        assertThrows(IllegalArgumentException.class, () -> san.parse(game, ""));
+        ChessGame ambiguous = ChessGame.fromFen("k7/8/8/8/8/5N2/8/1N5K w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> san.parse(ambiguous, "Nd2"));
+    }
+
+    @Test
+    public void recordsMoveHistory() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        game.makeMove(new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(1, 7), null));
+        game.doMove(san.parse(game, "Bxe2"));
+        game.doMove(san.parse(game, "Qxe2"));
+        game.undoMove();
+        game.doMove(san.parse(game, "Nxe2+"));
+        assertEquals(KIWIPETE, game.getStartFen());
+        assertEquals(List.of(
+                new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(1, 7), null),
+                new ChessMove(ChessPosition.of(6, 1), ChessPosition.of(2, 5), null),
+                new ChessMove(ChessPosition.of(3, 3), ChessPosition.of(2, 5), null)), game.getMoveHistory());
+
+        ChessGame stored = Serializer.GSON.fromJson(Serializer.GSON.toJson(game), ChessGame.class);
+        assertEquals(game.getMoveHistory(), stored.getMoveHistory());
+        assertEquals(KIWIPETE, stored.getStartFen());
+
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertTrue(game.getMoveHistory().isEmpty());
+        assertEquals(game.toFen(), game.getStartFen());
+    }
+
+    // Formats and parses back every move along every line to the given depth
+    private void walk(ChessGame game, int depth) {
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            String text = san.format(game, move);
+            assertEquals(move, san.parse(game, text), text);
+            if (depth > 1) {
+                game.doMove(move);
+                walk(game, depth - 1);
+                game.undoMove();
+            }
+        }
+    }
+
+    private String format(ChessGame game, String move) {
+        return san.format(game, PackedMove.parse(move));
+    }
+}
@@ -0,0 +1,105 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+public class ZobristTest {
+
+    private static final String KIWIPETE = """
+            |r| | | |k| | |r|
+            |p| |p|p|q|p|b| |
+            |b|n| | |p|n|p| |
+            | | | |P|N| | | |
+            | |p| | |P| | | |
+            | | |N| | |Q| |p|
+            |P|P|P|B|B|P|P|P|
+            |R| | | |K| | |R|
+            """;
+
+    @Test
+    public void incrementalKeyMatchesRecomputedKey() {
+        ChessGame game = new ChessGame(TestUtilities.loadBoard(KIWIPETE), ChessGame.TeamColor.WHITE);
+        walk(game, 3);
+    }
+
+    @Test
+    public void transpositionsShareKey() {
+        ChessGame a = new ChessGame();
+        ChessGame b = new ChessGame();
+        play(a, "g1f3", "g8f6", "b1c3");
+        play(b, "b1c3", "g8f6", "g1f3");
+        assertEquals(a.positionKey(), b.positionKey());
+        assertEquals(a, b);
+    }
+
+    @Test
+    public void sideCastlingAndEnPassantChangeKey() {
+        ChessGame game = new ChessGame();
+        long start = game.positionKey();
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8");
+        assertEquals(start, game.positionKey());
+
+        // Same pieces, but the king has moved and lost its castling rights
+        play(game, "e2e4", "e7e5", "e1e2", "e8e7", "e2e1", "e7e8");
+        ChessGame sameBoard = new ChessGame();
+        play(sameBoard, "e2e4", "e7e5");
+        play(sameBoard, "g1f3", "g8f6", "f3g1", "f6g8");
+        assertEquals(game.getBoard(), sameBoard.getBoard());
+        assertNotEquals(game.positionKey(), sameBoard.positionKey());
+
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(white.positionKey(), black.positionKey());
+
+        // A double push only marks the en-passant file when a pawn can take on it
+        ChessGame noCapture = new ChessGame();
+        play(noCapture, "e2e4");
+        assertEquals(noCapture.getBoard().getPieceKey() ^ Zobrist.castling(15) ^ Zobrist.blackToMove(),
+                noCapture.positionKey());
+        ChessGame capture = new ChessGame();
+        play(capture, "e2e4", "a7a6", "e4e5", "d7d5");
+        ChessGame noEnPassant = new ChessGame();
+        play(noEnPassant, "e2e4", "d7d5", "e4e5", "a7a6");
+        assertEquals(capture.getBoard(), noEnPassant.getBoard());
+        assertNotEquals(capture.positionKey(), noEnPassant.positionKey());
+    }
+
+    // Plays every line to the given depth, checking the incremental key against a rebuilt board
+    private static void walk(ChessGame game, int depth) {
+        assertEquals(rebuilt(game.getBoard()).getPieceKey(), game.getBoard().getPieceKey());
+        if (depth == 0) {
+            return;
+        }
+        long key = game.positionKey();
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            walk(game, depth - 1);
+            game.undoMove();
+            assertEquals(key, game.positionKey());
+        }
+    }
+
+    private static ChessBoard rebuilt(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                copy.addPiece(Bitboards.position(square), piece);
+            }
+        }
+        return copy;
+    }
+
+    private static void play(ChessGame game, String... moves) {
+        for (String move : moves) {
+            int from = Bitboards.square(move.charAt(1) - '0', move.charAt(0) - 'a' + 1);
+            int to = Bitboards.square(move.charAt(3) - '0', move.charAt(2) - 'a' + 1);
+            game.doMove(PackedMove.of(from, to, PackedMove.NONE));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PieceSquareTables;
+import org.junit.jupiter.api.Test;
+
+public class EvaluatorTest {
+
+    @Test
+    public void startingPositionIsLevel() {
+        ChessGame game = new ChessGame();
+        assertEquals(0, Evaluator.evaluate(game));
+        assertEquals(PieceSquareTables.MAX_PHASE, game.getBoard().getPhase());
+    }
+
+    @Test
+    public void mirroredPositionsScoreTheSame() {
+        // Each pair is the same position with colors swapped and the board flipped
+        String[][] pairs = {
+                {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                        "r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1"},
+                {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                        "8/4p1p1/8/1r3P1K/kp5R/3P4/2P5/8 b - - 0 1"},
+        };
+        for (String[] pair : pairs) {
+            assertEquals(Evaluator.evaluate(ChessGame.fromFen(pair[0])), Evaluator.evaluate(ChessGame.fromFen(pair[1])));
+        }
+    }
+
+    @Test
+    public void prefersMaterialAndActivity() {
+        assertTrue(Evaluator.evaluate(ChessGame.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 1")) > 800);
+        assertTrue(Evaluator.evaluate(ChessGame.fromFen("4k3/8/8/8/8/8/8/3QK3 b - - 0 1")) < -800);
+        // A centralised knight beats one on the rim
+        assertTrue(Evaluator.evaluate(ChessGame.fromFen("4k3/8/8/4N3/8/8/8/4K3 w - - 0 1"))
+                > Evaluator.evaluate(ChessGame.fromFen("4k3/8/8/8/7N/8/8/4K3 w - - 0 1")));
+        // In a pawn ending the king belongs in the centre
+        assertTrue(Evaluator.evaluate(ChessGame.fromFen("4k3/4p3/8/8/3K4/8/4P3/8 w - - 0 1"))
+                > Evaluator.evaluate(ChessGame.fromFen("4k3/4p3/8/8/8/8/4P3/7K w - - 0 1")));
+    }
+
+    @Test
+    public void incrementalSumsMatchRecomputedSums() {
+        walk(ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"), 3);
+    }
+
+    // Plays every line to the given depth, checking the board's sums against a board rebuilt from FEN
+    private static void walk(ChessGame game, int depth) {
+        ChessBoard board = game.getBoard();
+        ChessBoard rebuilt = ChessGame.fromFen(game.toFen()).getBoard();
+        assertEquals(rebuilt.getMidgameScore(), board.getMidgameScore());
+        assertEquals(rebuilt.getEndgameScore(), board.getEndgameScore());
+        assertEquals(rebuilt.getPhase(), board.getPhase());
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        new MoveGenerator().generate(game, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            walk(game, depth - 1);
+            game.undoMove();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.PolyglotKey;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OpeningBookTest {
+
+    private static final String CASTLING = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void findsWeightedLegalMoves() throws IOException {
+        ChessGame start = new ChessGame();
+        long key = PolyglotKey.of(start);
+        OpeningBook book = new OpeningBook(writeBook(
+                entry(key, "d2d4", 5),
+                entry(key, "e2e4", 10),
+                // Not legal here, so left out
+                entry(key, "e2e5", 100),
+                // Keys on both sides of the start position, including ones negative as signed longs
+                entry(key + 1, "g1f3", 1),
+                entry(key - 1, "c2c4", 1),
+                entry(Long.MIN_VALUE, "b1c3", 1),
+                entry(-1, "b2b3", 1)));
+        assertEquals(7, book.size());
+
+        List<BookMove> moves = book.moves(start);
+        assertEquals(2, moves.size());
+        assertEquals("e2e4", PackedMove.toString(moves.get(0).getPackedMove()));
+        assertEquals(10, moves.get(0).getWeight());
+        assertEquals("d2d4", PackedMove.toString(moves.get(1).getPackedMove()));
+        assertEquals(5, moves.get(1).getWeight());
+
+        assertTrue(book.moves(ChessGame.fromFen(CASTLING)).isEmpty());
+        assertEquals(0, book.pick(ChessGame.fromFen(CASTLING), new SplittableRandom(1)));
+    }
+
+    @Test
+    public void picksInProportionToWeight() throws IOException {
+        ChessGame start = new ChessGame();
+        long key = PolyglotKey.of(start);
+        OpeningBook book = new OpeningBook(writeBook(entry(key, "e2e4", 3), entry(key, "d2d4", 1),
+                entry(key, "c2c4", 0)));
+        SplittableRandom random = new SplittableRandom(7);
+        int e4 = 0;
+        for (int i = 0; i < 4000; i++) {
+            String move = PackedMove.toString(book.pick(start, random));
+            assertNotEquals("c2c4", move);
+            if (move.equals("e2e4")) {
+                e4++;
+            }
+        }
+        assertTrue(e4 > 2800 && e4 < 3200, "e2e4 picked " + e4 + " times");
+    }
+
+    @Test
+    public void readsCastlingAsKingTakesRook() throws IOException {
+        ChessGame game = ChessGame.fromFen(CASTLING);
+        long key = PolyglotKey.of(game);
+        OpeningBook book = new OpeningBook(writeBook(entry(key, "e1h1", 2), entry(key, "e1a1", 1)));
+        List<BookMove> moves = book.moves(game);
+        assertEquals(2, moves.size());
+        assertEquals("e1g1", PackedMove.toString(moves.get(0).getPackedMove()));
+        assertNotEquals(0, moves.get(0).getPackedMove() & PackedMove.CASTLE);
+        assertEquals("e1c1", PackedMove.toString(moves.get(1).getPackedMove()));
+    }
+
+    @Test
+    public void searchPlaysBookMoves() throws IOException {
+        ChessGame start = new ChessGame();
+        OpeningBook book = new OpeningBook(writeBook(entry(PolyglotKey.of(start), "g1f3", 1)));
+        Search search = new Search(new TranspositionTable(1));
+        search.setOpeningBook(book);
+        SearchResult result = search.search(start, SearchLimits.depth(4));
+        assertTrue(result.isFromBook());
+        assertEquals("g1f3", PackedMove.toString(result.getPackedBestMove()));
+        assertEquals(0, result.getNodes());
+
+        // Out of book the search runs as usual
+        start.doMove(result.getPackedBestMove());
+        result = search.search(start, SearchLimits.depth(2));
+        assertFalse(result.isFromBook());
+        assertTrue(result.getNodes() > 0);
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        Path file = dir.resolve("truncated.bin");
+        Files.write(file, new byte[20]);
+        assertThrows(IOException.class, () -> new OpeningBook(file));
+    }
+
+    // A 16-byte book entry; only from and to squares, as no test move promotes
+    private static long[] entry(long key, String move, int weight) {
+        int packed = PackedMove.parse(move);
+        int bookMove = PackedMove.to(packed) | PackedMove.from(packed) << 6;
+        return new long[] {key, (long) bookMove << 48 | (long) weight << 32};
+    }
+
+    // Writes entries sorted by unsigned key, as Polyglot books are
+    private Path writeBook(long[]... entries) throws IOException {
+        List<long[]> sorted = new ArrayList<>(List.of(entries));
+        sorted.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+        Path file = dir.resolve("book.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            for (long[] entry : sorted) {
+                out.writeLong(entry[0]);
+                out.writeLong(entry[1]);
+            }
+        }
+        return file;
+    }
+}
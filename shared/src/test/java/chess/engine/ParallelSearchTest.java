@@ -0,0 +1,58 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSearchTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void agreesWithSingleThreadedSearch() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4));
+        SearchResult mate = search.search(ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"),
+                SearchLimits.depth(6), 4);
+        assertEquals(Search.MATE - 3, mate.getScore(), mate.toString());
+
+        SearchResult take = search.search(ChessGame.fromFen("4k3/8/8/8/3q4/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.depth(4), 3);
+        assertEquals("d2d4", PackedMove.toString(take.getPackedBestMove()));
+    }
+
+    @Test
+    public void countsHelperNodesAndStopsHelpers() {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4));
+        SearchResult result = search.search(game, SearchLimits.millis(200), 4);
+        assertNotNull(result.getBestMove());
+        assertTrue(result.getMillis() < 2000, result.toString());
+        assertEquals(KIWIPETE, game.toFen());
+
+        // The helpers were stopped and joined, so the same instance can search again at once
+        SearchResult again = search.search(game, SearchLimits.depth(3), 2);
+        assertEquals(3, again.getDepth());
+    }
+
+    @Test
+    public void stopsWhenAsked() throws InterruptedException {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4));
+        SearchResult[] result = new SearchResult[1];
+        Thread thread = new Thread(() -> result[0] = search.search(ChessGame.fromFen(KIWIPETE),
+                SearchLimits.depth(40), 3));
+        thread.start();
+        Thread.sleep(100);
+        search.stop();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+        assertNotNull(result[0].getBestMove());
+    }
+
+    @Test
+    public void rejectsNoThreads() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(1));
+        assertThrows(IllegalArgumentException.class, () -> search.search(new ChessGame(), SearchLimits.depth(1), 0));
+    }
+}
@@ -0,0 +1,98 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import org.junit.jupiter.api.Test;
+
+public class SearchTest {
+
+    private final Search search = new Search();
+
+    @Test
+    public void findsMateInOne() {
+        SearchResult result = search.search(ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"),
+                SearchLimits.depth(4));
+        assertEquals("a1a8", PackedMove.toString(result.getPackedBestMove()));
+        assertEquals(Search.MATE - 1, result.getScore());
+        assertTrue(result.isMate());
+    }
+
+    @Test
+    public void findsMateInTwo() {
+        // Rook roller: 1. Ra7 Kg8 2. Rb8#
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        SearchResult result = search.search(game, SearchLimits.depth(5));
+        assertEquals(Search.MATE - 3, result.getScore(), result.toString());
+        assertEquals(3, result.getPrincipalVariation().size());
+    }
+
+    @Test
+    public void winsMaterialAndAvoidsLosingIt() {
+        // The black queen on d4 is undefended
+        SearchResult take = search.search(ChessGame.fromFen("4k3/8/8/8/3q4/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.depth(3));
+        assertEquals("d2d4", PackedMove.toString(take.getPackedBestMove()));
+        assertTrue(take.getScore() > 300);
+
+        // Taking the pawn on d5 loses the queen to the pawn on e6
+        SearchResult keep = search.search(ChessGame.fromFen("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1"),
+                SearchLimits.depth(4));
+        assertNotEquals("d1d5", PackedMove.toString(keep.getPackedBestMove()), keep.toString());
+    }
+
+    @Test
+    public void reportsPositionsWithoutMoves() {
+        SearchResult mated = search.search(ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1"),
+                SearchLimits.depth(3));
+        assertNull(mated.getBestMove());
+        assertEquals(-Search.MATE, mated.getScore());
+
+        SearchResult stalemate = search.search(ChessGame.fromFen("7k/5Q2/8/8/8/8/8/6K1 b - - 0 1"),
+                SearchLimits.depth(3));
+        assertNull(stalemate.getBestMove());
+        assertEquals(0, stalemate.getScore());
+    }
+
+    @Test
+    public void respectsLimitsAndLeavesGameAlone() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = game.toFen();
+
+        SearchResult byNodes = search.search(game, SearchLimits.nodes(20_000));
+        assertNotNull(byNodes.getBestMove());
+        assertTrue(byNodes.getNodes() < 25_000, byNodes.toString());
+
+        SearchResult byTime = search.search(game, SearchLimits.millis(100));
+        assertNotNull(byTime.getBestMove());
+        assertTrue(byTime.getMillis() < 1000, byTime.toString());
+        assertEquals(fen, game.toFen());
+        assertTrue(game.getMoveHistory().isEmpty());
+    }
+
+    @Test
+    public void stopsWhenAsked() throws InterruptedException {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult[] result = new SearchResult[1];
+        Thread thread = new Thread(() -> result[0] = search.search(game, SearchLimits.depth(40)));
+        thread.start();
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+        assertNotNull(result[0].getBestMove());
+        assertTrue(result[0].getDepth() < 40);
+    }
+
+    @Test
+    public void stopConditionCountsFromTheStart() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult result = search.search(game, SearchLimits.depth(40), () -> true);
+        assertNotNull(result.getBestMove());
+        assertTrue(result.getNodes() < 10_000, "searched " + result.getNodes() + " nodes");
+
+        // The condition was for that search only
+        assertEquals(2, search.search(game, SearchLimits.depth(2)).getDepth());
+    }
+}
@@ -0,0 +1,97 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storesAndProbes() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.capacity());
+        assertEquals(0, table.probe(42));
+
+        table.store(42, 0x1234, -29990, 7, TranspositionTable.LOWER);
+        long entry = table.probe(42);
+        assertEquals(0x1234, TranspositionTable.move(entry));
+        assertEquals(-29990, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(1, table.getHits());
+        assertEquals(1, table.getMisses());
+
+        // A shallower bound does not replace a deeper one, but keeps its move when it does replace
+        table.store(42, 0, 5, 3, TranspositionTable.UPPER);
+        assertEquals(7, TranspositionTable.depth(table.probe(42)));
+        table.store(42, 0, 5, 9, TranspositionTable.UPPER);
+        assertEquals(0x1234, TranspositionTable.move(table.probe(42)));
+        assertEquals(9, TranspositionTable.depth(table.probe(42)));
+
+        table.clear();
+        assertEquals(0, table.probe(42));
+    }
+
+    @Test
+    public void replacesShallowestAndStaleEntries() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.capacity() / 4;
+        // Five keys in the same bucket: the shallowest of the first four gives way
+        for (int i = 0; i < 4; i++) {
+            table.store(7 + i * buckets, 0, 0, 10 + i, TranspositionTable.EXACT);
+        }
+        table.store(7 + 4 * buckets, 0, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(7));
+        assertNotEquals(0, table.probe(7 + 4 * buckets));
+        assertEquals(1, table.getCollisions());
+
+        // After a new search, old entries go before current ones no matter how deep
+        table.newSearch();
+        table.store(7 + 5 * buckets, 0, 0, 1, TranspositionTable.EXACT);
+        assertEquals(1, table.getCollisions());
+        assertNotEquals(0, table.probe(7 + 5 * buckets));
+    }
+
+    @Test
+    public void neverReturnsTornEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicBoolean corrupt = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 2_000_000; i++) {
+                    // Few distinct keys in few buckets, so writers keep racing on the same entries
+                    long key = random.nextLong(64) * 0x9E3779B97F4A7C15L;
+                    long entry = table.probe(key);
+                    if (entry != 0 && TranspositionTable.score(entry) != (short) key) {
+                        corrupt.set(true);
+                    }
+                    table.store(key, 0, (short) key, random.nextInt(64), TranspositionTable.EXACT);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(corrupt.get());
+    }
+
+    @Test
+    public void sharedTableSpeedsUpRepeatedSearch() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        TranspositionTable table = new TranspositionTable(4);
+        SearchResult first = new Search(table).search(game, SearchLimits.depth(5));
+        SearchResult second = new Search(table).search(game, SearchLimits.depth(5));
+        assertTrue(second.getNodes() < first.getNodes() / 2, first + " then " + second);
+        assertTrue(table.getHits() > 0);
+        assertNotNull(second.getBestMove());
+    }
+}
@@ -0,0 +1,116 @@
+package chess.pgn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.San;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class PgnTest {
+
+    private static final String ARCHIVE = """
+            [Event "Casual"]
+            [Site "?"]
+            [White "Anderssen, A."]
+            [Black "Kieseritzky, L."]
+            [Result "1-0"]
+
+            1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ {Bishop's Gambit} 4. Kf1 b5?! 5. Bxb5 Nf6
+            6. Nf3 Qh6 (6... Qh5 7. Nc3) 7. d3 Nh5 8. Nh4 $1 Qg5 9. Nf5 c6 10. g4 Nf6
+            11. Rg1 cxb5 12. h4 Qg6 13. h5 Qg5 14. Qf3 Ng8 15. Bxf4 Qf6 16. Nc3 Bc5
+            17. Nd5 Qxb2 18. Bd6 Bxg1 19. e5 Qxa1+ 20. Ke2 Na6 21. Nxg7+ Kd8 22. Qf6+ Nxf6
+            23. Be7# 1-0
+
+            [Event "Broken"]
+            [Result "*"]
+
+            1. e4 e5 2. Ke3 Nc6 *
+
+            ; a comment line
+            [Event "Setup"]
+            [SetUp "1"]
+            [FEN "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"]
+
+            1. e4 Kd7 2. e5 1/2-1/2
+            """;
+
+    @Test
+    public void readsArchive() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(ARCHIVE));
+        PgnGame immortal = reader.next();
+        assertEquals("Anderssen, A.", immortal.getTag("White"));
+        assertEquals("1-0", immortal.getResult());
+        ChessGame game = immortal.getGame();
+        assertEquals(45, game.getMoveHistory().size());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+
+        PgnException error = assertThrows(PgnException.class, reader::next);
+        assertTrue(error.getMessage().contains("Ke3"), error.getMessage());
+
+        PgnGame setup = reader.next();
+        assertEquals("1/2-1/2", setup.getResult());
+        assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", setup.getGame().getStartFen());
+        assertEquals("8/3k4/8/4P3/8/8/8/4K3 b - - 0 2", setup.getGame().toFen());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void roundTrips() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(ARCHIVE));
+        ChessGame immortal = reader.next().getGame();
+        assertThrows(PgnException.class, reader::next);
+        ChessGame setup = reader.next().getGame();
+
+        StringWriter out = new StringWriter();
+        PgnWriter writer = new PgnWriter(out);
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "Anderssen, A.");
+        tags.put("Black", "Kieseritzky, \"The Great\"");
+        tags.put("Opening", "King's Gambit");
+        writer.write(immortal, tags);
+        writer.write(setup);
+        String text = out.toString();
+        assertTrue(text.startsWith("""
+                [Event "?"]
+                [Site "?"]
+                [Date "????.??.??"]
+                [Round "?"]
+                [White "Anderssen, A."]
+                [Black "Kieseritzky, \\"The Great\\""]
+                [Result "1-0"]
+                [Opening "King's Gambit"]
+
+                1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ 4. Kf1 b5 5. Bxb5 Nf6 6. Nf3 Qh6 7. d3 Nh5
+                8. Nh4 Qg5 9. Nf5"""), text);
+        assertTrue(text.contains("23. Be7# 1-0\n\n"), text);
+        assertTrue(text.contains("[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 1\"]\n\n1. e4 Kd7 2. e5 *"),
+                text);
+        for (String line : text.split("\n")) {
+            assertTrue(line.length() <= 80, line);
+        }
+
+        PgnReader again = new PgnReader(new StringReader(text));
+        PgnGame first = again.next();
+        assertEquals("Kieseritzky, \"The Great\"", first.getTag("Black"));
+        assertEquals(immortal.getMoveHistory(), first.getGame().getMoveHistory());
+        assertEquals(immortal, first.getGame());
+        assertEquals(setup.getMoveHistory(), again.next().getGame().getMoveHistory());
+        assertNull(again.next());
+    }
+
+    @Test
+    public void writesBlackFirstMoveNumber() throws IOException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 b - - 0 7");
+        San san = new San();
+        game.doMove(san.parse(game, "Kd7"));
+        game.doMove(san.parse(game, "e4"));
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).write(game);
+        assertTrue(out.toString().endsWith("\n7... Kd7 8. e4 *\n\n"), out.toString());
+    }
+}
@@ -0,0 +1,151 @@
+package chess.tablebase;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import chess.ChessGame;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TablebaseTest {
+
+    @TempDir
+    static Path dir;
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        List<String> built = new TablebaseGenerator(dir).generate(3);
+        assertEquals(List.of("KQvK", "KRvK", "KBvK", "KNvK", "KPvK"), built);
+        tablebase = new Tablebase(dir);
+    }
+
+    @Test
+    public void mapsEveryTable() throws IOException {
+        assertEquals(5, tablebase.getTableCount());
+        assertEquals(3, tablebase.getMaxPieces());
+        // Two bits for each of 2 sides * 32 white king squares * 64 * 64 squares
+        assertEquals((1 << 18) / 4, Files.size(dir.resolve("KQvK.wdl")));
+        // Tables already built are kept
+        assertEquals(List.of(), new TablebaseGenerator(dir).generate(3));
+    }
+
+    @Test
+    public void probesKnownPositions() {
+        assertEquals(Wdl.WIN, probe("8/8/8/4k3/8/8/8/4K2Q w - - 0 1"));
+        assertEquals(Wdl.LOSS, probe("8/8/8/4k3/8/8/8/4K2Q b - - 0 1"));
+        assertEquals(Wdl.WIN, probe("8/8/8/4k3/8/8/8/R3K3 w - - 0 1"));
+        // Black wins the undefended queen
+        assertEquals(Wdl.DRAW, probe("8/8/8/8/8/8/1Q6/k6K b - - 0 1"));
+        // Checkmated
+        assertEquals(Wdl.LOSS, probe("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"));
+        assertEquals(Wdl.DRAW, probe("8/8/8/4k3/8/8/8/4K2B w - - 0 1"));
+        assertEquals(Wdl.DRAW, probe("8/8/8/4k3/8/8/8/4K2N w - - 0 1"));
+        // King on the sixth rank in front of its pawn wins whoever moves; a rook pawn with
+        // the defending king in the corner does not
+        assertEquals(Wdl.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"));
+        assertEquals(Wdl.LOSS, probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+        assertEquals(Wdl.DRAW, probe("k7/8/8/8/8/8/P7/K7 w - - 0 1"));
+        // The same with colors swapped and mirrored across the board
+        assertEquals(Wdl.WIN, probe("8/8/8/8/3p4/3k4/8/3K4 b - - 0 1"));
+        assertEquals(Wdl.DRAW, probe("7k/7p/8/8/8/8/8/7K b - - 0 1"));
+        assertEquals(Wdl.DRAW, probe("8/8/8/4k3/8/8/8/4K3 w - - 0 1"));
+    }
+
+    @Test
+    public void skipsPositionsOutsideTheTables() {
+        assertNull(probe("8/8/8/4k3/8/8/8/R3K2R w - - 0 1"));
+        assertNull(probe("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"));
+        assertNull(probe(new ChessGame().toFen()));
+    }
+
+    @Test
+    public void valuesAgreeWithTheBestMove() {
+        SplittableRandom random = new SplittableRandom(3);
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        String[] pieces = {"Q", "R", "P", "q", "r", "p"};
+        int checked = 0;
+        while (checked < 2000) {
+            ChessGame game = randomPosition(random, pieces[random.nextInt(pieces.length)]);
+            if (game == null) {
+                continue;
+            }
+            moves.clear();
+            generator.generate(game, moves);
+            Wdl best = moves.isEmpty() ? (generator.checkers() != 0 ? Wdl.LOSS : Wdl.DRAW) : Wdl.LOSS;
+            for (int i = 0; i < moves.size(); i++) {
+                game.doMove(moves.get(i));
+                Wdl reply = tablebase.probe(game).negate();
+                game.undoMove();
+                if (reply.ordinal() < best.ordinal()) {
+                    best = reply;
+                }
+            }
+            assertEquals(best, tablebase.probe(game), game.toFen());
+            checked++;
+        }
+    }
+
+    @Test
+    public void searchScoresEndingsFromTheTables() {
+        Search search = new Search(new TranspositionTable(1));
+        search.setTablebase(tablebase);
+        // Taking the rook leaves a won queen ending, scored from the table
+        SearchResult result = search.search(ChessGame.fromFen("k7/8/8/8/7r/8/8/2K1Q3 w - - 0 1"), SearchLimits.depth(3));
+        assertEquals("e1h4", PackedMove.toString(result.getPackedBestMove()));
+        assertEquals(Search.TABLEBASE_WIN - 1, result.getScore());
+        assertFalse(result.isMate());
+
+        // Already in the tables, only moves that keep the win are searched
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/3K4/7Q w - - 0 1");
+        game.doMove(search.search(game, SearchLimits.depth(2)).getPackedBestMove());
+        assertEquals(Wdl.LOSS, tablebase.probe(game));
+    }
+
+    private static Wdl probe(String fen) {
+        return tablebase.probe(ChessGame.fromFen(fen));
+    }
+
+    // A legal position with the two kings and one other piece, or null if the squares drawn are not one
+    private static ChessGame randomPosition(SplittableRandom random, String piece) {
+        int[] squares = {random.nextInt(64), random.nextInt(64), random.nextInt(64)};
+        if (squares[0] == squares[1] || squares[0] == squares[2] || squares[1] == squares[2]) {
+            return null;
+        }
+        char[][] rows = new char[8][8];
+        for (char[] row : rows) {
+            Arrays.fill(row, '1');
+        }
+        rows[7 - squares[0] / 8][squares[0] % 8] = 'K';
+        rows[7 - squares[1] / 8][squares[1] % 8] = 'k';
+        rows[7 - squares[2] / 8][squares[2] % 8] = piece.charAt(0);
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            fen.append(row == 0 ? "" : "/").append(rows[row]);
+        }
+        ChessGame game;
+        try {
+            game = ChessGame.fromFen(fen + (random.nextBoolean() ? " w" : " b") + " - - 0 1");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        ChessGame.TeamColor them = game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        boolean pawnOnEdge = piece.equalsIgnoreCase("P") && (squares[2] < 8 || squares[2] >= 56);
+        return pawnOnEdge || game.isInCheck(them) ? null : game;
+    }
+}